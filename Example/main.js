@@ -14,6 +14,7 @@ import {
 } from 'react-native';
 
 import KeyboardView from 'react-native-keyboard-view';
+import Stress from './stress';
 
 
 const KEYBOARD_VIEW = 'KEYBOARD_VIEW';
@@ -25,24 +26,25 @@ class Keyboard extends Component {
     this.state = {
       visible: true,
       contentVisible: false,
-      placeholderHeight: 0
+      placeholderHeight: 0,
+      stress: false
     };
   }
 
   _subscription = null;
 
   _testHardwareKeyboard = async () => {
-    if (Platform.OS === 'ios') {
-      const inHardwareKeyboardMode = await KeyboardView.getInHardwareKeyboardMode();
-      console.log('inHardwareKeyboardMode: ', inHardwareKeyboardMode);
-      const keyboardViewEmitter = new NativeEventEmitter(NativeModules.RNKeyboardEventEmitter);
-      this._subscription = keyboardViewEmitter.addListener('InHardwareKeyboardModeNameEvent', async (reminder) => {
-          const inHardwareKeyboardMode = await KeyboardView.getInHardwareKeyboardMode();
-          console.log('inHardwareKeyboardMode: ', inHardwareKeyboardMode);
-          console.log(reminder);
-        }
-      );
-    }
+    const inHardwareKeyboardMode = await KeyboardView.getInHardwareKeyboardMode();
+    console.log('inHardwareKeyboardMode: ', inHardwareKeyboardMode);
+    const keyboardViewEmitter = new NativeEventEmitter(Platform.OS === 'ios' ?
+      NativeModules.RNKeyboardEventEmitter :
+      NativeModules.KeyboardViewModule);
+    this._subscription = keyboardViewEmitter.addListener('InHardwareKeyboardModeNameEvent', async (reminder) => {
+        const inHardwareKeyboardMode = await KeyboardView.getInHardwareKeyboardMode();
+        console.log('inHardwareKeyboardMode: ', inHardwareKeyboardMode);
+        console.log(reminder);
+      }
+    );
   };
 
   componentDidMount() {
@@ -103,6 +105,9 @@ class Keyboard extends Component {
   }
 
   render() {
+    if (this.state.stress) {
+      return <Stress onClose={() => this.setState({ stress: false })} />;
+    }
 
     return (
       <View style={styles.container}>
@@ -170,6 +175,15 @@ class Keyboard extends Component {
               <Text style={styles.buttonText}>TOGGLE PLACEHOLDER</Text>
             </View>
           </TouchableHighlight>
+          <TouchableHighlight
+            style={styles.button}
+            onPress={() => this.setState({ stress: true })}
+            underlayColor="#ccc"
+          >
+            <View style={styles.buttonContent}>
+              <Text style={styles.buttonText}>STRESS</Text>
+            </View>
+          </TouchableHighlight>
         </View>
 
         <View style={styles.webviewContainer}>
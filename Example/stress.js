@@ -0,0 +1,243 @@
+import React, { Component } from 'react';
+import {
+  StyleSheet,
+  Text,
+  View,
+  TextInput,
+  TouchableHighlight,
+  ScrollView,
+  Platform
+} from 'react-native';
+
+import KeyboardView from 'react-native-keyboard-view';
+
+const ROW_COUNT = 300;
+const KEYBOARD_VIEW_COUNT = 3;
+const isAndroid = Platform.OS === 'android';
+
+const MODES = [
+  { name: 'DEFAULT', props: {}, policy: 'auto' },
+  { name: 'OPTIMIZED', props: { optimizeCoverOverdraw: true, panelHeightMorph: true, childSizing: 'window' }, policy: 'auto' },
+  { name: 'REDUCED', props: { optimizeCoverOverdraw: true, childSizing: 'window' }, policy: 'reduced' }
+];
+
+export default class Stress extends Component {
+
+  constructor(props) {
+    super(props);
+    this.state = {
+      mode: 0,
+      contentVisible: false,
+      overlay: false,
+      showLatency: null
+    };
+  }
+
+  componentWillUnmount() {
+    if (isAndroid && this.state.overlay) {
+      KeyboardView.setPerformanceOverlayEnabled(false);
+    }
+  }
+
+  _toggleOverlay() {
+    const overlay = !this.state.overlay;
+    if (isAndroid) {
+      KeyboardView.setPerformanceOverlayEnabled(overlay);
+    }
+    this.setState({ overlay });
+  }
+
+  _nextMode() {
+    const mode = (this.state.mode + 1) % MODES.length;
+    if (isAndroid) {
+      KeyboardView.setFrameBudgetPolicy({ policy: MODES[mode].policy });
+      KeyboardView.resetMetrics();
+    }
+    this.setState({ mode });
+  }
+
+  // 先收起键盘，再分别用两种方式打开，耗时记录在 SHOW_KEYBOARD_READY、SHOW_KEYBOARD_TOUCH
+  _showKeyboard(onTouch) {
+    const show = onTouch ? KeyboardView.showKeyboardOnTouch : KeyboardView.showKeyboard;
+    KeyboardView.dismiss()
+      .then(() => show(this._input))
+      .then(({ shown, latency }) => {
+        this.setState({ showLatency: `${onTouch ? 'touch' : 'ready'} ${shown ? Math.round(latency) + 'ms' : 'failed'}` });
+      });
+  }
+
+  _renderRows() {
+    const rows = [];
+    for (let i = 0; i < ROW_COUNT; i++) {
+      rows.push(
+        <View key={i} style={styles.row}>
+          <View style={[styles.avatar, { backgroundColor: `hsl(${i * 37 % 360}, 60%, 70%)` }]} />
+          <View style={styles.rowBody}>
+            <Text style={styles.rowTitle}>Row {i}</Text>
+            <Text style={styles.rowText} numberOfLines={2}>
+              Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt.
+            </Text>
+          </View>
+        </View>
+      );
+    }
+    return rows;
+  }
+
+  _renderKeyboardViews() {
+    const mode = MODES[this.state.mode];
+    const views = [];
+    for (let i = 0; i < KEYBOARD_VIEW_COUNT; i++) {
+      views.push(
+        <KeyboardView
+          key={i}
+          {...mode.props}
+          renderStickyView={() => (
+            <View style={styles.stickyView}>
+              <Text style={styles.buttonText}>STICKY {i}</Text>
+            </View>
+          )}
+        >
+          {this.state.contentVisible && i === 0 && (
+            <ScrollView style={styles.panel} keyboardShouldPersistTaps="always">
+              {this._renderRows().slice(0, 50)}
+            </ScrollView>
+          )}
+        </KeyboardView>
+      );
+    }
+    return views;
+  }
+
+  render() {
+    return (
+      <View style={styles.container}>
+        <View style={styles.actions}>
+          <TouchableHighlight style={styles.button} onPress={this.props.onClose} underlayColor="#ccc">
+            <Text style={styles.buttonText}>BACK</Text>
+          </TouchableHighlight>
+          <TouchableHighlight style={styles.button} onPress={this._nextMode.bind(this)} underlayColor="#ccc">
+            <Text style={styles.buttonText}>MODE: {MODES[this.state.mode].name}</Text>
+          </TouchableHighlight>
+          <TouchableHighlight
+            style={styles.button}
+            onPress={() => this.setState({ contentVisible: !this.state.contentVisible })}
+            underlayColor="#ccc"
+          >
+            <Text style={styles.buttonText}>TOGGLE PANEL</Text>
+          </TouchableHighlight>
+          <TouchableHighlight style={styles.button} onPress={this._toggleOverlay.bind(this)} underlayColor="#ccc">
+            <Text style={styles.buttonText}>{this.state.overlay ? 'HIDE HUD' : 'SHOW HUD'}</Text>
+          </TouchableHighlight>
+          {isAndroid && (
+            <TouchableHighlight style={styles.button} onPress={() => this._showKeyboard(false)} underlayColor="#ccc">
+              <Text style={styles.buttonText}>SHOW READY</Text>
+            </TouchableHighlight>
+          )}
+          {isAndroid && (
+            <TouchableHighlight style={styles.button} onPress={() => this._showKeyboard(true)} underlayColor="#ccc">
+              <Text style={styles.buttonText}>SHOW TOUCH</Text>
+            </TouchableHighlight>
+          )}
+          {this.state.showLatency && (
+            <Text style={styles.latency}>{this.state.showLatency}</Text>
+          )}
+        </View>
+        <TextInput
+          ref={input => this._input = input}
+          underlineColorAndroid="transparent"
+          placeholder="focus me"
+          style={styles.input}
+        />
+        <ScrollView style={styles.list} keyboardShouldPersistTaps="always">
+          {this._renderRows()}
+        </ScrollView>
+        {this._renderKeyboardViews()}
+      </View>
+    );
+  }
+}
+
+const styles = StyleSheet.create({
+  container: {
+    flex: 1,
+    backgroundColor: '#F5FCFF'
+  },
+
+  actions: {
+    flexDirection: 'row',
+    flexWrap: 'wrap',
+    justifyContent: 'center',
+    paddingTop: 20
+  },
+
+  button: {
+    borderRadius: 5,
+    backgroundColor: '#aaa',
+    paddingVertical: 5,
+    paddingHorizontal: 10,
+    height: 30,
+    marginHorizontal: 5,
+    marginBottom: 10
+  },
+
+  buttonText: {
+    textAlign: 'center',
+    color: '#eee'
+  },
+
+  latency: {
+    height: 30,
+    lineHeight: 30,
+    marginHorizontal: 5
+  },
+
+  input: {
+    height: 30,
+    marginHorizontal: 20,
+    marginBottom: 5,
+    paddingHorizontal: 5,
+    borderWidth: StyleSheet.hairlineWidth
+  },
+
+  list: {
+    flex: 1
+  },
+
+  row: {
+    flexDirection: 'row',
+    padding: 8,
+    borderBottomWidth: StyleSheet.hairlineWidth,
+    borderColor: '#ccc'
+  },
+
+  avatar: {
+    width: 40,
+    height: 40,
+    borderRadius: 20,
+    marginRight: 8
+  },
+
+  rowBody: {
+    flex: 1
+  },
+
+  rowTitle: {
+    fontWeight: 'bold'
+  },
+
+  rowText: {
+    color: '#666'
+  },
+
+  stickyView: {
+    height: 44,
+    backgroundColor: 'red',
+    justifyContent: 'center'
+  },
+
+  panel: {
+    flex: 1,
+    backgroundColor: '#fff'
+  }
+});
@@ -1,11 +1,14 @@
 import React, { Component, Children } from 'react';
 import PropTypes from 'prop-types';
-import { NativeModules, StyleSheet, View, requireNativeComponent, Platform, Animated, Dimensions } from 'react-native';
+import { NativeModules, StyleSheet, View, requireNativeComponent, Platform, Animated, Dimensions, findNodeHandle,
+    UIManager } from 'react-native';
 import Modal from 'react-native-root-modal';
 
 const SCREEN_HEIGHT = Dimensions.get('screen').height;
 const isIOS = Platform.OS === 'ios';
 const isAndroid = Platform.OS === 'android';
+// dismiss、show 等待键盘真正关闭、打开的最长时间(ms)
+const CONFIRM_TIMEOUT = 500;
 
 const styles = StyleSheet.create({
     offSteam: {
@@ -28,6 +31,15 @@ const styles = StyleSheet.create({
     } : {}
 });
 
+function showKeyboard(input, timeout = CONFIRM_TIMEOUT) {
+    return NativeModules.KeyboardViewModule.showKeyboard(input ? findNodeHandle(input) : -1, timeout);
+}
+
+// 旧的模拟点击方式，结果与 showKeyboard 相同，用于对比耗时
+function showKeyboardOnTouch(input, timeout = CONFIRM_TIMEOUT) {
+    return NativeModules.KeyboardViewModule.showKeyboardOnTouch(input ? findNodeHandle(input) : -1, timeout);
+}
+
 export default class extends Component {
     static displayName = 'KeyboardView';
 
@@ -38,7 +50,24 @@ export default class extends Component {
         onHide: PropTypes.func,
         hideWhenKeyboardIsDismissed: PropTypes.bool,
         contentVisible: PropTypes.bool,
-        keyboardPlaceholderHeight: PropTypes.number
+        keyboardPlaceholderHeight: PropTypes.number,
+        panelSnapshotEnabled: PropTypes.bool,
+        panelHeightMorph: PropTypes.bool,
+        childSizing: PropTypes.oneOf(['screen', 'window']),
+        optimizeCoverOverdraw: PropTypes.bool,
+        // Animated.Value，键盘露出的高度，由原生端逐帧驱动(Android)
+        keyboardHeight: PropTypes.object,
+        // Animated.Value，0 为收起，1 为完全打开(Android)
+        keyboardProgress: PropTypes.object,
+        onKeyboardMove: PropTypes.func,
+        // 输入框是 WebView 时，每帧最多一次调用页面里的该函数，传入键盘的几何信息(Android)
+        webViewGeometryCallback: PropTypes.string,
+        // 多个具名面板 { name: element }，与 children 二选一
+        panels: PropTypes.object,
+        activePanel: PropTypes.string,
+        // 同时挂载的面板数上限，超出后卸载最久没用的面板(Android)
+        maxMountedPanels: PropTypes.number,
+        onPanelEvicted: PropTypes.func
     };
 
     static defaultProps = {
@@ -48,15 +77,148 @@ export default class extends Component {
 
     static dismiss = isIOS ?
       NativeModules.RNKeyboardViewManager.dismiss :
-      NativeModules.KeyboardViewModule.dismiss;
+      (timeout = CONFIRM_TIMEOUT) => NativeModules.KeyboardViewModule.dismiss(timeout);
+
+    static show = isAndroid ? showKeyboard : null;
+
+    static showKeyboard = isAndroid ? showKeyboard : null;
+
+    static showKeyboardOnTouch = isAndroid ? showKeyboardOnTouch : null;
 
     static dismissWithoutAnimation = isIOS ?
       NativeModules.RNKeyboardViewManager.dismissWithoutAnimation :
       null;
 
+    static setKeyboardDetectionOptions = isAndroid ?
+      NativeModules.KeyboardViewModule.setKeyboardDetectionOptions :
+      null;
+
+    static getMetrics = isAndroid ?
+      NativeModules.KeyboardViewModule.getMetrics :
+      null;
+
+    static setMetricsEnabled = isAndroid ?
+      NativeModules.KeyboardViewModule.setMetricsEnabled :
+      null;
+
+    static resetMetrics = isAndroid ?
+      NativeModules.KeyboardViewModule.resetMetrics :
+      null;
+
+    static setPerformanceOverlayEnabled = isAndroid ?
+      NativeModules.KeyboardViewModule.setPerformanceOverlayEnabled :
+      null;
+
+    static setHardwareLayerPolicy = isAndroid ?
+      NativeModules.KeyboardViewModule.setHardwareLayerPolicy :
+      null;
+
+    static setFrameBudgetPolicy = isAndroid ?
+      NativeModules.KeyboardViewModule.setFrameBudgetPolicy :
+      null;
+
+    static getFrameBudgetPolicy = isAndroid ?
+      NativeModules.KeyboardViewModule.getFrameBudgetPolicy :
+      null;
+
     static getInHardwareKeyboardMode = isIOS ?
       NativeModules.RNKeyboardViewManager.getInHardwareKeyboardMode :
-      null;
+      NativeModules.KeyboardViewModule.getInHardwareKeyboardMode;
+
+    constructor(props) {
+        super(props);
+        this.state = {
+            mountedPanels: this._getMountedPanels(props, [])
+        };
+        this._onPanelEvicted = this._onPanelEvicted.bind(this);
+    }
+
+    componentWillReceiveProps(nextProps) {
+        const mountedPanels = this._getMountedPanels(nextProps, this.state.mountedPanels);
+        if (mountedPanels !== this.state.mountedPanels) {
+            this.setState({ mountedPanels });
+        }
+    }
+
+    /**
+     * 面板用过一次之后保持挂载，直到被原生端淘汰或从 panels 里移除
+     */
+    _getMountedPanels(props, mountedPanels) {
+        const { panels, activePanel } = props;
+        let result = mountedPanels.filter(name => panels && panels[name]);
+        if (activePanel && panels && panels[activePanel] && result.indexOf(activePanel) < 0) {
+            result.push(activePanel);
+        }
+        if (result.length === mountedPanels.length && result.every((name, i) => name === mountedPanels[i])) {
+            return mountedPanels;
+        }
+        return result;
+    }
+
+    _onPanelEvicted(event) {
+        const { panelName } = event.nativeEvent;
+        if (panelName !== this.props.activePanel) {
+            this.setState({ mountedPanels: this.state.mountedPanels.filter(name => name !== panelName) });
+        }
+        this.props.onPanelEvicted && this.props.onPanelEvicted(panelName);
+    }
+
+    swapToPanel(height) {
+        if (isAndroid) {
+            NativeModules.KeyboardViewModule.swapToPanel(findNodeHandle(this), height || 0);
+        }
+    }
+
+    swapToKeyboard() {
+        if (isAndroid) {
+            NativeModules.KeyboardViewModule.swapToKeyboard(findNodeHandle(this));
+        }
+    }
+
+    showPanel(height) {
+        this._dispatchCommand('showPanel', [height || 0]);
+    }
+
+    hidePanel() {
+        this._dispatchCommand('hidePanel', []);
+    }
+
+    setPanelHeight(height) {
+        this._dispatchCommand('setPanelHeight', [height]);
+    }
+
+    _dispatchCommand(command, args) {
+        if (!isAndroid) {
+            return;
+        }
+        const config = UIManager.getViewManagerConfig ?
+          UIManager.getViewManagerConfig('KeyboardView') :
+          UIManager.KeyboardView;
+        UIManager.dispatchViewManagerCommand(findNodeHandle(this), config.Commands[command], args);
+    }
+
+    _getKeyboardMoveHandler() {
+        const { keyboardHeight, keyboardProgress, onKeyboardMove } = this.props;
+        if (!keyboardHeight && !keyboardProgress) {
+            return onKeyboardMove;
+        }
+        const cache = this._keyboardMoveHandler;
+        if (cache && cache.keyboardHeight === keyboardHeight && cache.keyboardProgress === keyboardProgress &&
+          cache.onKeyboardMove === onKeyboardMove) {
+            return cache.handler;
+        }
+        const nativeEvent = {};
+        if (keyboardHeight) {
+            nativeEvent.height = keyboardHeight;
+        }
+        if (keyboardProgress) {
+            nativeEvent.progress = keyboardProgress;
+        }
+        // 每帧的值在原生端直接写入动画节点，不经过 JS
+        const handler = Animated.event([{ nativeEvent }], { useNativeDriver: true, listener: onKeyboardMove });
+        this._keyboardMoveHandler = { keyboardHeight, keyboardProgress, onKeyboardMove, handler };
+        return handler;
+    }
 
     _shouldSetResponder() {
         return true;
@@ -78,6 +240,19 @@ export default class extends Component {
         );
     }
 
+    _getPanelViews(panels) {
+        return this.state.mountedPanels.map(name => (
+          <KeyboardContentView
+            style={styles.offSteam}
+            pointerEvents="box-none"
+            key={`panel-${name}`}
+            panelName={name}
+          >
+              {panels[name]}
+          </KeyboardContentView>
+        ));
+    }
+
     _getCoverView(cover, stickyView, visible) {
         if (!visible) {
             return null;
@@ -88,6 +263,7 @@ export default class extends Component {
             style={styles.offSteam}
             pointerEvents="box-none"
             key="coverView"
+            optimizeOverdraw={this.props.optimizeCoverOverdraw}
           >
               <View
                 style={[styles.cover, styles.androidInputAvoid]}
@@ -109,8 +285,11 @@ export default class extends Component {
     }
 
     render() {
-        const { children, renderStickyView, renderCoverView, transform, onHide, onShow, keyboardPlaceholderHeight,
-          hideWhenKeyboardIsDismissed, contentVisible } = this.props;
+        const { renderStickyView, renderCoverView, transform, onHide, onShow, keyboardPlaceholderHeight,
+          hideWhenKeyboardIsDismissed, contentVisible, panelSnapshotEnabled,
+          panelHeightMorph, childSizing, webViewGeometryCallback, panels, activePanel, maxMountedPanels } = this.props;
+        // iOS 不缓存面板，只渲染当前面板
+        const children = panels && isIOS ? panels[activePanel] : this.props.children;
         const stickyView = renderStickyView && renderStickyView();
         const cover = renderCoverView && renderCoverView();
         const hasCover = this._hasChildren(cover) || this._hasChildren(stickyView);
@@ -125,7 +304,7 @@ export default class extends Component {
         };
 
         const childViews = [
-            this._getContentView(children, hasContent, hasContent),
+            ...(panels && isAndroid ? this._getPanelViews(panels) : [this._getContentView(children, hasContent)]),
             this._getCoverView(cover, stickyView, hasCover)
         ];
 
@@ -142,10 +321,20 @@ export default class extends Component {
               </Modal>
             );
         } else {
+            const onKeyboardMove = this._getKeyboardMoveHandler();
             return (
               <KeyboardView
                 style={[styles.offSteam]}
                 {...props}
+                panelSnapshotEnabled={panelSnapshotEnabled}
+                panelHeightMorph={panelHeightMorph}
+                childSizing={childSizing}
+                webViewGeometryCallback={webViewGeometryCallback}
+                onKeyboardMove={onKeyboardMove}
+                keyboardMoveEnabled={!!onKeyboardMove}
+                activePanel={activePanel}
+                maxMountedPanels={maxMountedPanels}
+                onPanelEvicted={this._onPanelEvicted}
               >
                   {childViews}
               </KeyboardView>
@@ -166,6 +355,20 @@ const nativeOnlyProps = {
     contentVisible: true
 };
 
+// 以下属性只有 Android 实现
+const androidNativeOnlyProps = {
+    ...nativeOnlyProps,
+    panelSnapshotEnabled: true,
+    panelHeightMorph: true,
+    childSizing: true,
+    onKeyboardMove: true,
+    keyboardMoveEnabled: true,
+    webViewGeometryCallback: true,
+    activePanel: true,
+    maxMountedPanels: true,
+    onPanelEvicted: true
+};
+
 if (isIOS) {
     KeyboardView = requireNativeComponent('RNKeyboardView', null, {
         nativeOnly: {
@@ -179,8 +382,11 @@ if (isIOS) {
     KeyboardCoverView = requireNativeComponent('RNKeyboardCoverView');
 } else {
     KeyboardView = requireNativeComponent('KeyboardView', null, {
-        nativeOnly: nativeOnlyProps
+        nativeOnly: androidNativeOnlyProps
     });
+
+    // onKeyboardMove 需要绑定 native driver 的 Animated.event
+    KeyboardView = Animated.createAnimatedComponent(KeyboardView);
     KeyboardContentView = requireNativeComponent('KeyboardContentView');
     KeyboardCoverView = requireNativeComponent('KeyboardCoverView');
 }
@@ -1,10 +1,13 @@
 package im.shimo.react.keyboard;
 
 import android.app.Activity;
+import android.content.Context;
 import android.graphics.Rect;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewTreeObserver;
+import android.view.inputmethod.InputMethodManager;
 import android.widget.FrameLayout;
 
 import com.facebook.react.uimanager.DisplayMetricsHolder;
@@ -22,13 +25,26 @@ public class AdjustResizeWithFullScreen {
     private int usableHeightPrevious;
     private int usableWidthPrevious;
     private static AdjustResizeWithFullScreen mInstance;
+    private static final KeyboardStatusFilter mStatusFilter = new KeyboardStatusFilter();
 
     private OnKeyboardStatusListener mListener;
     private static int mKeyboardHeight;
     private boolean mKeyboardOpened;
-    private final int KEYBOARD_MIN_HEIGHT = 200;
+    /**
+     * 页面在后台或者不可见，全局布局监听已经移除
+     */
+    private boolean mSuspended;
     private Rect mVisibleViewArea = new Rect();
     private int mHeightPixels;
+    private final InputMethodManager mInputMethodManager;
+    private final Runnable mDebounceRunnable = new Runnable() {
+        @Override
+        public void run() {
+            //去抖结束，强制重新计算一次
+            usableHeightPrevious = -1;
+            possiblyResizeChildOfContent();
+        }
+    };
 
     public static View getDecorView() {
         if(mInstance != null && mInstance.mActivity != null) {
@@ -41,6 +57,53 @@ public class AdjustResizeWithFullScreen {
         return mInstance != null;
     }
 
+    /**
+     * 丢弃上一次的结果，按当前的可绘区域重新计算一次
+     */
+    public static void resync() {
+        if (mInstance != null && mInstance.mChildOfContent != null) {
+            mInstance.usableHeightPrevious = -1;
+            mInstance.possiblyResizeChildOfContent();
+        }
+    }
+
+    /**
+     * 暂停检测，只有当前的 listener 可以暂停
+     */
+    public static void suspend(OnKeyboardStatusListener listener) {
+        if (mInstance == null || mInstance.mListener != listener || mInstance.mSuspended || mInstance.mChildOfContent == null) {
+            return;
+        }
+        if (KeyboardViewManager.DEBUG) {
+            Log.e(TAG, "suspend");
+        }
+        mInstance.mSuspended = true;
+        mInstance.mChildOfContent.getViewTreeObserver().removeOnGlobalLayoutListener(mInstance.mOnGlobalLayoutListener);
+        mInstance.mChildOfContent.removeCallbacks(mInstance.mDebounceRunnable);
+    }
+
+    /**
+     * 恢复检测，按当前的可绘区域一次性同步，不回放暂停期间的变化
+     */
+    public static void resume(OnKeyboardStatusListener listener) {
+        if (mInstance == null || mInstance.mListener != listener || !mInstance.mSuspended || mInstance.mChildOfContent == null) {
+            return;
+        }
+        if (KeyboardViewManager.DEBUG) {
+            Log.e(TAG, "resume");
+        }
+        mInstance.mSuspended = false;
+        mInstance.mChildOfContent.getViewTreeObserver().addOnGlobalLayoutListener(mInstance.mOnGlobalLayoutListener);
+        resync();
+    }
+
+    /**
+     * 键盘开关状态的过滤配置，对之后注册的 Activity 同样有效
+     */
+    public static KeyboardStatusFilter getStatusFilter() {
+        return mStatusFilter;
+    }
+
     public interface OnKeyboardStatusListener {
         void onKeyboardOpened();
 
@@ -61,6 +124,7 @@ public class AdjustResizeWithFullScreen {
         if (mInstance != null) {
             if (mInstance.mChildOfContent != null && mInstance.mOnGlobalLayoutListener != null) {
                 mInstance.mChildOfContent.getViewTreeObserver().removeOnGlobalLayoutListener(mInstance.mOnGlobalLayoutListener);
+                mInstance.mChildOfContent.removeCallbacks(mInstance.mDebounceRunnable);
                 mInstance.mChildOfContent.requestLayout();
                 mInstance = null;
             }
@@ -73,6 +137,8 @@ public class AdjustResizeWithFullScreen {
         mStatusBarHeight = statusBarHeight;
         mNavigationBarHeight = navigationBarHeight;
         mHeightPixels = DisplayMetricsHolder.getScreenDisplayMetrics().heightPixels;
+        mInputMethodManager = (InputMethodManager) activity.getSystemService(Context.INPUT_METHOD_SERVICE);
+        mStatusFilter.reset();
         mOnGlobalLayoutListener = new ViewTreeObserver.OnGlobalLayoutListener() {
             @Override
             public void onGlobalLayout() {
@@ -91,6 +157,11 @@ public class AdjustResizeWithFullScreen {
             mListener = onKeyboardStatusListener;
         }
         FrameLayout content = (FrameLayout) mActivity.findViewById(android.R.id.content);
+        if (mChildOfContent != null) {
+            //避免重复注册
+            mChildOfContent.getViewTreeObserver().removeOnGlobalLayoutListener(mOnGlobalLayoutListener);
+        }
+        mSuspended = false;
         mChildOfContent = content.getChildAt(0);
         mChildOfContent.getViewTreeObserver().addOnGlobalLayoutListener(mOnGlobalLayoutListener);
         int mChildOfContentHeight = mChildOfContent.getBottom();
@@ -106,7 +177,25 @@ public class AdjustResizeWithFullScreen {
         int usableWidthNow = mVisibleViewArea.right;
         if (usableHeightNow != usableHeightPrevious || usableWidthNow != usableWidthPrevious) {
             final int heightDifference = mHeightPixels - usableHeightNow;
-            if (heightDifference > KEYBOARD_MIN_HEIGHT) {
+            if (!mKeyboardOpened && usableWidthNow == usableWidthPrevious
+                    && HardwareKeyboardDetector.isInHardwareKeyboardMode()
+                    && mStatusFilter.isAccessoryBar(heightDifference)) {
+                //外接键盘时的候选栏或工具栏无需跟随，软键盘仍可能被主动弹出
+                usableHeightPrevious = usableHeightNow;
+                publishState();
+                return;
+            }
+            final long now = SystemClock.uptimeMillis();
+            final int status = mStatusFilter.filter(heightDifference, now);
+            if (status == KeyboardStatusFilter.STATE_PENDING) {
+                //高度在阈值附近抖动，等去抖结束再处理
+                mChildOfContent.removeCallbacks(mDebounceRunnable);
+                mChildOfContent.postDelayed(mDebounceRunnable, mStatusFilter.getRemainingDebounce(now));
+                //开关状态未确认，可绘区域照常更新
+                publishState();
+                return;
+            }
+            if (status == KeyboardStatusFilter.STATE_OPENED) {
                 if (mKeyboardHeight != heightDifference) {
                     // keyboard is now showing, or the keyboard height has changed
                     // distance - safeAreaHeight = keyboardHeight
@@ -136,6 +225,14 @@ public class AdjustResizeWithFullScreen {
                     if (mListener != null) {
                         mListener.onKeyboardClosed();
                     }
+                } else if (isFloatingKeyboard(heightDifference, usableWidthNow)) {
+                    //悬浮键盘或者候选栏没有遮住内容，无需重新布局
+                    if (KeyboardViewManager.DEBUG) {
+                        Log.e(TAG, "possiblyResizeChildOfContent,floating keyboard,heightDifference=" + heightDifference);
+                    }
+                    usableHeightPrevious = usableHeightNow;
+                    publishState();
+                    return;
                 }
                 if (mListener != null) {
                     mListener.onKeyboardResize(usableHeightNow, 0);
@@ -143,9 +240,28 @@ public class AdjustResizeWithFullScreen {
             }
             usableHeightPrevious = usableHeightNow;
             usableWidthPrevious = usableWidthNow;
+            publishState();
         }
     }
 
+    private void publishState() {
+        KeyboardStateStore.getInstance().publish(new KeyboardState(mKeyboardOpened, mKeyboardHeight,
+                mVisibleViewArea, mHeightPixels, SystemClock.uptimeMillis()));
+    }
+
+    /**
+     * 宽度不变、高度变化落在关闭阈值以内，且正在输入：视为悬浮键盘
+     */
+    private boolean isFloatingKeyboard(int heightDifference, int usableWidthNow) {
+        return mStatusFilter.isIgnoreFloatingKeyboard()
+                && usableHeightPrevious > 0
+                && usableWidthNow == usableWidthPrevious
+                && mStatusFilter.isNotCovering(heightDifference)
+                && mStatusFilter.isNotCovering(mHeightPixels - usableHeightPrevious)
+                && mInputMethodManager != null
+                && mInputMethodManager.isAcceptingText();
+    }
+
     /**
      * 可绘区域全屏，或者可绘区域+键盘高度=全屏，则视为本逻辑意义里的全屏
      *
@@ -182,6 +298,14 @@ public class AdjustResizeWithFullScreen {
         return 0;
     }
 
+    /**
+     * 可绘区域的副本
+     */
+    public static Rect getVisibleViewArea() {
+        if (mInstance == null) return new Rect();
+        return new Rect(mInstance.computeUsableHeight());
+    }
+
     public static int getUseBottom() {
         if (mInstance == null) return 0;
         return mInstance.computeUsableHeight().bottom;
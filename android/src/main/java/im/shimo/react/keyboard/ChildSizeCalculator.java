@@ -0,0 +1,143 @@
+package im.shimo.react.keyboard;
+
+/**
+ * KeyboardViewShadowView 子节点的尺寸，与 shadow node 无关，单独拿出来便于测试。
+ * screen：屏幕可能的最大尺寸；window：当前窗口的尺寸，分屏、自由窗口下更小，窗口变化时跟着更新。
+ * 子节点的样式不再是上次设置的值时，说明已被键盘逻辑接管，不再覆盖
+ */
+class ChildSizeCalculator {
+    /**
+     * 按下标访问子节点的样式
+     */
+    interface Children {
+        int getChildCount();
+
+        /**
+         * @return 样式的宽度，单位不是 point 时返回 NaN
+         */
+        float getStyleWidth(int index);
+
+        /**
+         * @return 样式的高度，单位不是 point 时返回 NaN
+         */
+        float getStyleHeight(int index);
+
+        void setStyleWidth(int index, int width);
+
+        void setStyleHeight(int index, int height);
+    }
+
+    private boolean mSizeToWindow;
+    private int mWindowWidth = -1;
+    private int mWindowHeight = -1;
+    /**
+     * 最近一次设置给子节点的尺寸
+     */
+    private int mChildWidth = -1;
+    private int mChildHeight = -1;
+
+    boolean isSizeToWindow() {
+        return mSizeToWindow;
+    }
+
+    /**
+     * @return 模式是否有变化，有变化时调用方需要调用 update
+     */
+    boolean setSizeToWindow(boolean sizeToWindow) {
+        if (sizeToWindow == mSizeToWindow) {
+            return false;
+        }
+        mSizeToWindow = sizeToWindow;
+        return true;
+    }
+
+    /**
+     * @return 窗口模式下窗口尺寸是否有变化，有变化时调用方需要调用 update
+     */
+    boolean setWindowSize(int width, int height) {
+        if (mWindowWidth == width && mWindowHeight == height) {
+            return false;
+        }
+        mWindowWidth = width;
+        mWindowHeight = height;
+        return mSizeToWindow;
+    }
+
+    int getChildWidth() {
+        return mChildWidth;
+    }
+
+    int getChildHeight() {
+        return mChildHeight;
+    }
+
+    /**
+     * 新加入的子节点使用当前的尺寸
+     *
+     * @param screenWidth    屏幕模式下的宽度，见 screenWidth
+     * @param screenHeight   屏幕模式下的高度，见 screenHeight
+     * @param fallbackWidth  窗口还没有布局时使用的宽度，即 Resources 里的窗口尺寸
+     * @param fallbackHeight 窗口还没有布局时使用的高度
+     */
+    void compute(int screenWidth, int screenHeight, int fallbackWidth, int fallbackHeight) {
+        if (!mSizeToWindow) {
+            mChildWidth = screenWidth;
+            mChildHeight = screenHeight;
+        } else if (mWindowWidth > 0 && mWindowHeight > 0) {
+            mChildWidth = mWindowWidth;
+            mChildHeight = mWindowHeight;
+        } else {
+            mChildWidth = fallbackWidth;
+            mChildHeight = fallbackHeight;
+        }
+    }
+
+    /**
+     * 重新计算尺寸，只更新样式仍是上次设置的值的子节点
+     *
+     * @return 是否有子节点的样式变化，有变化时调用方需要发起布局
+     */
+    boolean update(Children children, int screenWidth, int screenHeight, int fallbackWidth, int fallbackHeight) {
+        final int oldWidth = mChildWidth;
+        final int oldHeight = mChildHeight;
+        compute(screenWidth, screenHeight, fallbackWidth, fallbackHeight);
+        if (oldWidth == mChildWidth && oldHeight == mChildHeight) {
+            return false;
+        }
+        boolean changed = false;
+        for (int i = 0; i < children.getChildCount(); i++) {
+            if (isPointValue(children.getStyleWidth(i), oldWidth)) {
+                children.setStyleWidth(i, mChildWidth);
+                changed = true;
+            }
+            if (isPointValue(children.getStyleHeight(i), oldHeight)) {
+                children.setStyleHeight(i, mChildHeight);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    static boolean isPointValue(float value, int expected) {
+        return !Float.isNaN(value) && Math.round(value) == expected;
+    }
+
+    /**
+     * 屏幕可能的最大宽度：竖屏取最小宽度，横屏取最大宽度
+     *
+     * @param sizeX    Display.getSize 当前方向的宽
+     * @param sizeY    Display.getSize 当前方向的高
+     * @param minWidth getCurrentSizeRange 的最小宽度
+     * @param maxWidth getCurrentSizeRange 的最大宽度
+     */
+    static int screenWidth(int sizeX, int sizeY, int minWidth, int maxWidth) {
+        return sizeX < sizeY ? minWidth : maxWidth;
+    }
+
+    /**
+     * 屏幕可能的最大高度：竖屏取最大高度，横屏取最小高度
+     */
+    static int screenHeight(int sizeX, int sizeY, int minHeight, int maxHeight) {
+        return sizeX < sizeY ? maxHeight : minHeight;
+    }
+}
@@ -0,0 +1,113 @@
+package im.shimo.react.keyboard;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.util.LruCache;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 面板的位图快照：面板被移除时截取最后一帧，下次显示时在 React 子树首次绘制之前先画快照。
+ * 按面板名和截取时的尺寸保存，尺寸不同时不使用，避免拉伸。
+ * 快照按比例缩小，总大小受内存预算限制，onTrimMemory 时全部释放
+ */
+class ContentSnapshotCache implements ComponentCallbacks2 {
+    private static final int MAX_BYTES = 4 * 1024 * 1024;
+    private static final float SCALE = 0.5f;
+    private static final int BYTES_PER_PIXEL = 4;
+    private static ContentSnapshotCache mInstance;
+
+    private final LruCache<String, Bitmap> mSnapshots = new LruCache<String, Bitmap>(MAX_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getRowBytes() * value.getHeight();
+        }
+    };
+
+    static synchronized ContentSnapshotCache get(Context context) {
+        if (mInstance == null) {
+            mInstance = new ContentSnapshotCache();
+            context.getApplicationContext().registerComponentCallbacks(mInstance);
+        }
+        return mInstance;
+    }
+
+    private ContentSnapshotCache() {
+    }
+
+    static String key(String name, int width, int height) {
+        return name + '@' + width + 'x' + height;
+    }
+
+    /**
+     * 截取 view 当前的内容
+     *
+     * @param name 面板名，同名的面板可以使用彼此的快照
+     */
+    void capture(String name, View view) {
+        final int width = view.getWidth();
+        final int height = view.getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        float scale = SCALE;
+        final float bytes = width * height * scale * scale * BYTES_PER_PIXEL;
+        if (bytes > MAX_BYTES) {
+            scale *= (float) Math.sqrt(MAX_BYTES / bytes);
+        }
+        final int snapshotWidth = Math.max(1, (int) (width * scale));
+        final int snapshotHeight = Math.max(1, (int) (height * scale));
+        try {
+            Bitmap bitmap = Bitmap.createBitmap(snapshotWidth, snapshotHeight, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            canvas.scale(scale, scale);
+            view.draw(canvas);
+            mSnapshots.put(key(name, width, height), bitmap);
+        } catch (OutOfMemoryError e) {
+            mSnapshots.evictAll();
+        }
+    }
+
+    /**
+     * @param width  面板当前的宽度(px)
+     * @param height 面板当前的高度(px)
+     * @return 没有同样尺寸的快照时返回 null
+     */
+    @Nullable Bitmap get(String name, int width, int height) {
+        return mSnapshots.get(key(name, width, height));
+    }
+
+    /**
+     * 移除该面板所有尺寸的快照
+     */
+    void remove(String name) {
+        final String prefix = name + '@';
+        for (String key : mSnapshots.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                mSnapshots.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            mSnapshots.evictAll();
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        //方向或尺寸变化后快照已经不能对齐
+        mSnapshots.evictAll();
+    }
+
+    @Override
+    public void onLowMemory() {
+        mSnapshots.evictAll();
+    }
+}
@@ -0,0 +1,186 @@
+package im.shimo.react.keyboard;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 根据键盘过渡期间最近几帧的耗时决定跟随键盘的精度：
+ * FULL 每次回调都跟随并播放过渡动画；REDUCED 每帧只应用最后一次位置，并直接跳到终点。
+ * 帧耗时以刷新周期（由屏幕刷新率得到，而不是从样本估算）的倍数衡量，与屏幕的刷新率无关。
+ * 只在键盘变化后的一小段时间内采样，空闲时不注册帧回调。
+ * 切换到 REDUCED 之后新的采样周期沿用该模式：低端设备不必每次键盘变化都先卡几帧才切换，
+ * 采样周期内的帧恢复按时之后再回到 FULL
+ */
+public class FrameBudgetMonitor implements Choreographer.FrameCallback {
+    public enum Policy {
+        AUTO,
+        FULL,
+        REDUCED;
+
+        /**
+         * @return 不认识的值返回 null
+         */
+        static @Nullable Policy fromString(@Nullable String policy) {
+            if ("auto".equals(policy)) {
+                return AUTO;
+            } else if ("full".equals(policy)) {
+                return FULL;
+            } else if ("reduced".equals(policy)) {
+                return REDUCED;
+            }
+            return null;
+        }
+    }
+
+    public enum Mode {
+        FULL,
+        REDUCED
+    }
+
+    private static final FrameBudgetMonitor INSTANCE = new FrameBudgetMonitor();
+    private static final int SAMPLE_COUNT = 8;
+    /**
+     * 最后一次键盘变化之后继续采样的时间(ms)
+     */
+    private static final long SAMPLE_WINDOW = 500;
+    /**
+     * 取不到刷新率时按 60Hz 计算
+     */
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 16666667;
+
+    private volatile Policy mPolicy = Policy.AUTO;
+    private volatile float mSlowFrames = 1.5f;
+    private volatile float mRecoverFrames = 1.15f;
+    private volatile Mode mMode = Mode.FULL;
+
+    private final long[] mFrameNanos = new long[SAMPLE_COUNT];
+    private int mSampleIndex;
+    private int mSampleSize;
+    private long mLastFrameTimeNanos;
+    private long mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+    private long mSampleUntil;
+    private boolean mSampling;
+
+    public static FrameBudgetMonitor getInstance() {
+        return INSTANCE;
+    }
+
+    FrameBudgetMonitor() {
+    }
+
+    public Policy getPolicy() {
+        return mPolicy;
+    }
+
+    public void setPolicy(Policy policy) {
+        mPolicy = policy;
+    }
+
+    /**
+     * 单位为刷新周期，1 表示每帧都按时完成
+     *
+     * @param slowFrames    平均帧间隔超过该值切换到 REDUCED
+     * @param recoverFrames 平均帧间隔低于该值恢复 FULL
+     */
+    public void setThresholds(float slowFrames, float recoverFrames) {
+        mSlowFrames = slowFrames;
+        mRecoverFrames = Math.min(recoverFrames, slowFrames);
+    }
+
+    public float getSlowFrames() {
+        return mSlowFrames;
+    }
+
+    public float getRecoverFrames() {
+        return mRecoverFrames;
+    }
+
+    public Mode getMode() {
+        switch (mPolicy) {
+            case FULL:
+                return Mode.FULL;
+            case REDUCED:
+                return Mode.REDUCED;
+            default:
+                return mMode;
+        }
+    }
+
+    public boolean isReduced() {
+        return getMode() == Mode.REDUCED;
+    }
+
+    /**
+     * 键盘发生变化，在UI线程调用，开始（或延长）采样
+     *
+     * @param refreshRate 屏幕当前的刷新率(Hz)，小于等于0时按 60Hz 计算
+     */
+    void sample(float refreshRate) {
+        mSampleUntil = SystemClock.uptimeMillis() + SAMPLE_WINDOW;
+        if (!mSampling && mPolicy == Policy.AUTO) {
+            mSampling = true;
+            startSession(refreshRate);
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * 新的采样周期不沿用上一次的样本；刷新率可能已经变化，按当前的刷新率重新计算刷新周期
+     */
+    void startSession(float refreshRate) {
+        mLastFrameTimeNanos = 0;
+        mSampleIndex = 0;
+        mSampleSize = 0;
+        mFrameIntervalNanos = refreshRate > 0 ? Math.round(1000000000d / refreshRate) : DEFAULT_FRAME_INTERVAL_NANOS;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mLastFrameTimeNanos != 0) {
+            onFrameInterval(frameTimeNanos - mLastFrameTimeNanos);
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        if (SystemClock.uptimeMillis() < mSampleUntil && mPolicy == Policy.AUTO) {
+            Choreographer.getInstance().postFrameCallback(this);
+        } else {
+            mSampling = false;
+        }
+    }
+
+    void onFrameInterval(long frameNanos) {
+        countDroppedFrames(frameNanos);
+        mFrameNanos[mSampleIndex] = frameNanos;
+        mSampleIndex = (mSampleIndex + 1) % SAMPLE_COUNT;
+        mSampleSize = Math.min(mSampleSize + 1, SAMPLE_COUNT);
+        updateMode();
+    }
+
+    /**
+     * 超出刷新周期的整数倍视为掉帧
+     */
+    private void countDroppedFrames(long frameNanos) {
+        final long dropped = Math.round((double) frameNanos / mFrameIntervalNanos) - 1;
+        if (dropped > 0) {
+            KeyboardMetrics.add(KeyboardMetrics.Counter.DROPPED_FRAMES, dropped);
+        }
+    }
+
+    private void updateMode() {
+        if (mSampleSize < SAMPLE_COUNT / 2 || mFrameIntervalNanos == 0) {
+            return;
+        }
+        long total = 0;
+        for (int i = 0; i < mSampleSize; i++) {
+            total += mFrameNanos[i];
+        }
+        //平均帧间隔是刷新周期的几倍
+        final float average = (float) total / mSampleSize / mFrameIntervalNanos;
+        if (mMode == Mode.FULL && average > mSlowFrames) {
+            mMode = Mode.REDUCED;
+        } else if (mMode == Mode.REDUCED && average < mRecoverFrames) {
+            mMode = Mode.FULL;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package im.shimo.react.keyboard;
+
+import android.content.res.Configuration;
+
+/**
+ * 外接键盘检测：Configuration.keyboard 有按键，并且 hardKeyboardHidden 为 NO
+ */
+public class HardwareKeyboardDetector {
+    private static volatile boolean mInHardwareKeyboardMode;
+
+    public static boolean isInHardwareKeyboardMode() {
+        return mInHardwareKeyboardMode;
+    }
+
+    public static boolean isInHardwareKeyboardMode(Configuration configuration) {
+        return configuration.keyboard != Configuration.KEYBOARD_NOKEYS
+                && configuration.keyboard != Configuration.KEYBOARD_UNDEFINED
+                && configuration.hardKeyboardHidden == Configuration.HARDKEYBOARDHIDDEN_NO;
+    }
+
+    /**
+     * @return 外接键盘状态是否变化
+     */
+    static boolean update(Configuration configuration) {
+        final boolean inHardwareKeyboardMode = isInHardwareKeyboardMode(configuration);
+        if (inHardwareKeyboardMode == mInHardwareKeyboardMode) {
+            return false;
+        }
+        mInHardwareKeyboardMode = inHardwareKeyboardMode;
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+package im.shimo.react.keyboard;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Build;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 过渡动画期间是否把面板提升为硬件层：面板在动画中可能重新布局，提升后每帧只需合成。
+ * CoverView 全屏且只有平移，平移本来就不会重绘，提升只会多一块全屏的缓冲，所以不提升
+ */
+public enum HardwareLayerPolicy {
+    /**
+     * 低内存设备上不提升
+     */
+    AUTO,
+    ALWAYS,
+    NEVER;
+
+    private static volatile HardwareLayerPolicy mPolicy = AUTO;
+
+    public static HardwareLayerPolicy get() {
+        return mPolicy;
+    }
+
+    public static void set(HardwareLayerPolicy policy) {
+        mPolicy = policy;
+    }
+
+    /**
+     * @return 不认识的值返回 null
+     */
+    static @Nullable HardwareLayerPolicy fromString(@Nullable String policy) {
+        if ("auto".equals(policy)) {
+            return AUTO;
+        } else if ("always".equals(policy)) {
+            return ALWAYS;
+        } else if ("never".equals(policy)) {
+            return NEVER;
+        }
+        return null;
+    }
+
+    static boolean shouldPromote(Context context) {
+        switch (mPolicy) {
+            case ALWAYS:
+                return true;
+            case NEVER:
+                return false;
+            default:
+                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+                    return true;
+                }
+                ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+                return activityManager == null || !activityManager.isLowRamDevice();
+        }
+    }
+
+    /**
+     * @return 是否由这里改变了层类型，只有返回 true 时才需要 demote；
+     * 应用自己设置过层类型（例如 renderToHardwareTextureAndroid）时不动
+     */
+    static boolean promote(@Nullable View view) {
+        if (view != null && view.getLayerType() == View.LAYER_TYPE_NONE) {
+            view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 只还原 promote 返回 true 的 View
+     */
+    static void demote(@Nullable View view) {
+        if (view != null && view.getLayerType() == View.LAYER_TYPE_HARDWARE) {
+            view.setLayerType(View.LAYER_TYPE_NONE, null);
+        }
+    }
+}
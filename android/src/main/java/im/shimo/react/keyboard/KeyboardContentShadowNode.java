@@ -0,0 +1,37 @@
+package im.shimo.react.keyboard;
+
+import com.facebook.react.uimanager.LayoutShadowNode;
+import com.facebook.react.uimanager.ReactShadowNodeImpl;
+
+/**
+ * 面板的 shadow node，记录面板当前的尺寸：
+ * 面板和它的子节点在同一个布局批次里设置尺寸，尺寸没有变化时不再发起布局
+ */
+class KeyboardContentShadowNode extends LayoutShadowNode {
+    private final PanelSizeSync mPanelSize = new PanelSizeSync() {
+        @Override
+        void onPanelSizeChanged(int width, int height) {
+            if (getChildCount() > 0) {
+                ReactShadowNodeImpl child = getChildAt(0);
+                child.setStyleWidth(width);
+                child.setStyleHeight(height);
+            }
+        }
+    };
+
+    @Override
+    public void addChildAt(ReactShadowNodeImpl child, int i) {
+        super.addChildAt(child, i);
+        if (i == 0 && mPanelSize.hasSize()) {
+            child.setStyleWidth(mPanelSize.getWidth());
+            child.setStyleHeight(mPanelSize.getHeight());
+        }
+    }
+
+    /**
+     * 由 PanelSizeSync.apply 设置尺寸并发起布局，需在 native modules 线程调用
+     */
+    PanelSizeSync getPanelSize() {
+        return mPanelSize;
+    }
+}
@@ -1,10 +1,17 @@
 package im.shimo.react.keyboard;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.Nullable;
 
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.uimanager.JSTouchDispatcher;
+import com.facebook.react.uimanager.ReactShadowNode;
 import com.facebook.react.uimanager.RootView;
 import com.facebook.react.uimanager.UIManagerModule;
 import com.facebook.react.uimanager.events.EventDispatcher;
@@ -13,23 +20,178 @@ import com.facebook.react.views.view.ReactViewGroup;
 class KeyboardContentView extends ReactViewGroup implements RootView {
 
     private final JSTouchDispatcher mJSTouchDispatcher = new JSTouchDispatcher(this);
+    /**
+     * React 子树首次绘制之前显示的快照的面板名，为空时不显示
+     */
+    private @Nullable String mSnapshotName;
+    private final Rect mSnapshotBounds = new Rect();
+    private boolean mSizeUpdatesSuspended;
+    private int mPendingWidth = -1;
+    private int mPendingHeight = -1;
+    private final KeyboardLayoutLane mLayoutLane;
+    /**
+     * 多面板模式下的面板名，为空时是唯一的面板
+     */
+    private @Nullable String mPanelName;
+    /**
+     * 新架构下通过组件 state 更新布局
+     */
+    private final KeyboardLayoutState mLayoutState = new KeyboardLayoutState();
+    /**
+     * 子树底部对齐时加在子树上的平移
+     */
+    private int mChildOffset;
+    private @Nullable View mAlignedChild;
+    private final OnLayoutChangeListener mChildLayoutListener = new OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            //子树按新尺寸布局之后不再需要平移
+            alignChildToBottom();
+        }
+    };
 
     public KeyboardContentView(Context context) {
         super(context);
+        mLayoutLane = new KeyboardLayoutLane((ReactContext) context);
+    }
+
+    KeyboardLayoutState getLayoutState() {
+        return mLayoutState;
+    }
+
+    void setPanelName(@Nullable String panelName) {
+        mPanelName = panelName;
+    }
+
+    @Nullable String getPanelName() {
+        return mPanelName;
+    }
+
+    void setSnapshotName(@Nullable String snapshotName) {
+        mSnapshotName = snapshotName;
+        invalidate();
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mSnapshotName != null) {
+            if (!hasLaidOutChild()) {
+                //绘制时才知道面板的尺寸，只使用同样尺寸的快照
+                final Bitmap snapshot = ContentSnapshotCache.get(getContext()).get(mSnapshotName, getWidth(), getHeight());
+                if (snapshot != null) {
+                    mSnapshotBounds.set(0, 0, getWidth(), getHeight());
+                    canvas.drawBitmap(snapshot, null, mSnapshotBounds, null);
+                    return;
+                }
+            } else {
+                //子树已经可以绘制，不再需要快照
+                mSnapshotName = null;
+            }
+        }
+        super.dispatchDraw(canvas);
+    }
+
+    private boolean hasLaidOutChild() {
+        for (int i = 0; i < getChildCount(); i++) {
+            if (getChildAt(i).getHeight() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        KeyboardMetrics.increment(KeyboardMetrics.Counter.CONTENT_DRAW);
+        super.draw(canvas);
+    }
+
+    @Override
+    public void onViewAdded(View child) {
+        super.onViewAdded(child);
+        if (getChildAt(0) == child) {
+            child.addOnLayoutChangeListener(mChildLayoutListener);
+        }
+    }
+
+    @Override
+    public void onViewRemoved(View child) {
+        super.onViewRemoved(child);
+        child.removeOnLayoutChangeListener(mChildLayoutListener);
+        if (child == mAlignedChild) {
+            child.setTranslationY(child.getTranslationY() - mChildOffset);
+            mChildOffset = 0;
+            mAlignedChild = null;
+        }
+    }
+
+    /**
+     * 面板变高时窗口先变大，子树在布局之前还是原来的高度：让子树底部与面板对齐，
+     * 空出来的部分在顶部、由过渡动画移出，而不是在底部露出一条空白
+     */
+    private void alignChildToBottom() {
+        if (getChildCount() == 0) {
+            return;
+        }
+        final View child = getChildAt(0);
+        final int offset = child.getHeight() > 0 ? Math.max(0, getHeight() - child.getHeight()) : 0;
+        if (child != mAlignedChild) {
+            mAlignedChild = child;
+            mChildOffset = 0;
+        }
+        if (offset != mChildOffset) {
+            //保留 React 设置的平移
+            child.setTranslationY(child.getTranslationY() - mChildOffset + offset);
+            mChildOffset = offset;
+        }
     }
 
     @Override
     protected void onSizeChanged(final int w, final int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
+        alignChildToBottom();
+        if (mSizeUpdatesSuspended) {
+            //高度过渡中，结束时再统一布局
+            mPendingWidth = w;
+            mPendingHeight = h;
+            return;
+        }
+        updateChildSize(w, h);
+    }
+
+    /**
+     * 暂停把窗口尺寸同步给 React 子树，恢复时只同步最后一次的尺寸
+     */
+    void setSizeUpdatesSuspended(boolean suspended) {
+        mSizeUpdatesSuspended = suspended;
+        if (!suspended && mPendingWidth > -1) {
+            updateChildSize(mPendingWidth, mPendingHeight);
+            mPendingWidth = mPendingHeight = -1;
+        }
+    }
+
+    private void updateChildSize(final int w, final int h) {
+        if (mLayoutState.update(w, h, -1)) {
+            //新架构，子节点的尺寸由 ComponentDescriptor 根据 state 设置
+            return;
+        }
         if (getChildCount() > 0) {
             final int viewTag = getChildAt(0).getId();
-            ReactContext reactContext = (ReactContext) getContext();
-            reactContext.runOnNativeModulesQueueThread(
-                new Runnable() {
+            mLayoutLane.post(KeyboardLayoutLane.KEY_CONTENT_CHILD,
+                new KeyboardLayoutLane.Task() {
                     @Override
-                    public void run() {
-                        ((ReactContext) getContext()).getNativeModule(UIManagerModule.class)
-                            .updateNodeSize(viewTag, w, h);
+                    public boolean run() {
+                        UIManagerModule uiManager = ((ReactContext) getContext()).getNativeModule(UIManagerModule.class);
+                        ReactShadowNode shadowNode = uiManager.getUIImplementation().resolveShadowNode(getId());
+                        if (shadowNode == null || uiManager.getUIImplementation().resolveShadowNode(viewTag) == null) {
+                            return false;
+                        }
+                        //KeyboardView 可能已经在同一批次里设置过
+                        PanelSizeSync.apply(shadowNode instanceof KeyboardContentShadowNode
+                                        ? ((KeyboardContentShadowNode) shadowNode).getPanelSize() : null,
+                                viewTag, w, h, KeyboardView.nodeSizeUpdater(uiManager));
+                        return true;
                     }
                 });
         }
@@ -1,7 +1,13 @@
 package im.shimo.react.keyboard;
 
+import androidx.annotation.Nullable;
+
+import com.facebook.react.uimanager.LayoutShadowNode;
+import com.facebook.react.uimanager.ReactStylesDiffMap;
+import com.facebook.react.uimanager.StateWrapper;
 import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.uimanager.ViewGroupManager;
+import com.facebook.react.uimanager.annotations.ReactProp;
 
 public class KeyboardContentViewManager extends ViewGroupManager<KeyboardContentView> {
     protected static final String REACT_CLASS = "KeyboardContentView";
@@ -15,4 +21,31 @@ public class KeyboardContentViewManager extends ViewGroupManager<KeyboardContent
     public KeyboardContentView createViewInstance(ThemedReactContext context) {
         return new KeyboardContentView(context);
     }
+
+    /**
+     * 必须在加入 KeyboardView 之前设置，之后修改无效
+     */
+    @ReactProp(name = "panelName")
+    public void setPanelName(KeyboardContentView view, @Nullable String panelName) {
+        view.setPanelName(panelName);
+    }
+
+    @Override
+    public LayoutShadowNode createShadowNodeInstance() {
+        return new KeyboardContentShadowNode();
+    }
+
+    @Override
+    public Class<? extends LayoutShadowNode> getShadowNodeClass() {
+        return KeyboardContentShadowNode.class;
+    }
+
+    /**
+     * 只在新架构下调用，旧架构继续使用 shadow node
+     */
+    @Override
+    public Object updateState(KeyboardContentView view, ReactStylesDiffMap props, @Nullable StateWrapper stateWrapper) {
+        view.getLayoutState().setStateWrapper(stateWrapper);
+        return null;
+    }
 }
@@ -2,26 +2,259 @@ package im.shimo.react.keyboard;
 
 
 import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Build;
 import androidx.annotation.NonNull;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 
 import com.facebook.react.uimanager.PointerEvents;
 import com.facebook.react.views.view.ReactViewGroup;
 
 public class KeyboardCoverView extends ReactViewGroup {
     private volatile PointerEvents pointerEvents = PointerEvents.BOX_NONE;
+    /**
+     * API 26 以下收不到 onDescendantInvalidated，每次按下都重新计算
+     */
+    private static final boolean CAN_TRACK_DESCENDANTS = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O;
+    private final TouchableRegionIndex mTouchableRegions = new TouchableRegionIndex();
+    private boolean mTouchableRegionsDirty = true;
+    private boolean mSkipGesture;
+    /**
+     * 只绘制可见子View的包围盒，没有可见内容时整个跳过
+     */
+    private boolean mOptimizeOverdraw;
+    /**
+     * 透明容器最多向下展开的层数，超过后直接使用容器的范围
+     */
+    private static final int MAX_BOUNDS_DEPTH = 4;
+    private final Rect mVisibleBounds = new Rect();
+    private final RectF mTmpRect = new RectF();
+    /**
+     * 包围盒以 clipBounds 交给 RenderNode，而不是在 draw 里 clipRect：
+     * 子View平移、透明度变化（包括 Animated 原生驱动）只更新 RenderNode 属性，不会重新录制本View，
+     * 录制进去的 clipRect 会过期，clipBounds 则可以在 onDescendantInvalidated 里单独更新
+     */
+    private final Rect mAppliedClipBounds = new Rect();
+    private boolean mClipBoundsApplied;
+    /**
+     * 上次录制时没有可见内容、整个跳过了绘制
+     */
+    private boolean mVisibleBoundsEmpty;
+    /**
+     * 一帧内多次 onDescendantInvalidated 只在绘制前重新计算一次包围盒：
+     * 与绘制在同一帧，裁剪范围不会落后子View一帧
+     */
+    private boolean mVisibleBoundsUpdatePending;
+    private final ViewTreeObserver.OnPreDrawListener mVisibleBoundsUpdater = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            getViewTreeObserver().removeOnPreDrawListener(this);
+            mVisibleBoundsUpdatePending = false;
+            updateVisibleBounds();
+            return true;
+        }
+    };
+    /**
+     * 新架构下通过组件 state 更新布局
+     */
+    private final KeyboardLayoutState mLayoutState = new KeyboardLayoutState();
 
     public KeyboardCoverView(Context context) {
         super(context);
     }
 
+    KeyboardLayoutState getLayoutState() {
+        return mLayoutState;
+    }
+
+    void setOptimizeOverdraw(boolean optimizeOverdraw) {
+        if (mOptimizeOverdraw != optimizeOverdraw) {
+            mOptimizeOverdraw = optimizeOverdraw;
+            updateVisibleBounds();
+            invalidate();
+        }
+    }
+
+    /**
+     * 依赖 onDescendantInvalidated 得知子View的变化，API 26 以下不裁剪
+     */
+    private boolean isClippingVisibleBounds() {
+        return mOptimizeOverdraw && CAN_TRACK_DESCENDANTS && getBackground() == null;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        if (!isClippingVisibleBounds()) {
+            if (mClipBoundsApplied) {
+                //设置了背景，去掉之前的裁剪
+                computeVisibleBounds();
+            }
+            KeyboardMetrics.increment(KeyboardMetrics.Counter.COVER_DRAW);
+            KeyboardMetrics.add(KeyboardMetrics.Counter.COVER_DRAW_AREA, (long) getWidth() * getHeight());
+            super.draw(canvas);
+            return;
+        }
+        computeVisibleBounds();
+        if (mVisibleBoundsEmpty) {
+            //没有可见内容，整个透明层都不需要绘制
+            return;
+        }
+        KeyboardMetrics.increment(KeyboardMetrics.Counter.COVER_DRAW);
+        KeyboardMetrics.add(KeyboardMetrics.Counter.COVER_DRAW_AREA,
+                (long) mVisibleBounds.width() * mVisibleBounds.height());
+        super.draw(canvas);
+    }
+
+    private void scheduleVisibleBoundsUpdate() {
+        if (mVisibleBoundsUpdatePending || !isClippingVisibleBounds()) {
+            return;
+        }
+        mVisibleBoundsUpdatePending = true;
+        getViewTreeObserver().addOnPreDrawListener(mVisibleBoundsUpdater);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        //还连着窗口的 ViewTreeObserver 时移除
+        if (mVisibleBoundsUpdatePending) {
+            mVisibleBoundsUpdatePending = false;
+            getViewTreeObserver().removeOnPreDrawListener(mVisibleBoundsUpdater);
+        }
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * 子View变化后更新裁剪范围，只有从没有可见内容变为有可见内容时才需要重新录制
+     */
+    private void updateVisibleBounds() {
+        final boolean wasEmpty = mVisibleBoundsEmpty;
+        computeVisibleBounds();
+        if (wasEmpty && !mVisibleBoundsEmpty) {
+            invalidate();
+        }
+    }
+
+    private void computeVisibleBounds() {
+        if (!isClippingVisibleBounds()) {
+            mVisibleBoundsEmpty = false;
+            if (mClipBoundsApplied) {
+                mClipBoundsApplied = false;
+                setClipBounds(null);
+            }
+            return;
+        }
+        mVisibleBounds.setEmpty();
+        unionVisibleBounds(this, 0, 0, MAX_BOUNDS_DEPTH);
+        mVisibleBoundsEmpty = !mVisibleBounds.intersect(0, 0, getWidth(), getHeight());
+        if (mVisibleBoundsEmpty) {
+            mVisibleBounds.setEmpty();
+        }
+        if (!mClipBoundsApplied || !mAppliedClipBounds.equals(mVisibleBounds)) {
+            mClipBoundsApplied = true;
+            mAppliedClipBounds.set(mVisibleBounds);
+            setClipBounds(mVisibleBounds);
+        }
+    }
+
+    /**
+     * 计算可见内容在本View坐标系里的包围盒：没有背景、只有平移的容器继续向下展开，其余的取自身范围
+     */
+    private void unionVisibleBounds(ViewGroup parent, float offsetX, float offsetY, int depth) {
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            final View child = parent.getChildAt(i);
+            if (child.getVisibility() != VISIBLE || child.getAlpha() == 0 || child.getWidth() == 0 || child.getHeight() == 0) {
+                continue;
+            }
+            final boolean translationOnly = child.getScaleX() == 1 && child.getScaleY() == 1
+                    && child.getRotation() == 0 && child.getRotationX() == 0 && child.getRotationY() == 0;
+            if (translationOnly && depth > 0 && child instanceof ViewGroup && child.getBackground() == null) {
+                unionVisibleBounds((ViewGroup) child,
+                        offsetX + child.getLeft() + child.getTranslationX(),
+                        offsetY + child.getTop() + child.getTranslationY(),
+                        depth - 1);
+                continue;
+            }
+            mTmpRect.set(0, 0, child.getWidth(), child.getHeight());
+            child.getMatrix().mapRect(mTmpRect);
+            mTmpRect.offset(offsetX + child.getLeft(), offsetY + child.getTop());
+            mVisibleBounds.union((int) Math.floor(mTmpRect.left), (int) Math.floor(mTmpRect.top),
+                    (int) Math.ceil(mTmpRect.right), (int) Math.ceil(mTmpRect.bottom));
+        }
+    }
+
+    /**
+     * 只有一个可见子View时，半透明动画不需要离屏缓冲
+     */
+    @Override
+    public boolean hasOverlappingRendering() {
+        if (!mOptimizeOverdraw || getBackground() != null) {
+            return super.hasOverlappingRendering();
+        }
+        int visibleCount = 0;
+        for (int i = 0; i < getChildCount(); i++) {
+            if (getChildAt(i).getVisibility() == VISIBLE && ++visibleCount > 1) {
+                return super.hasOverlappingRendering();
+            }
+        }
+        return false;
+    }
+
     @Override
     public PointerEvents getPointerEvents() {
         // Override getPointerEvents or it will return PointerEvents.AUTO.
         return pointerEvents;
     }
 
+    /**
+     * 全屏的 CoverView 覆盖在整个页面之上，按下的位置不在任何可交互子View里时，整个手势都不再遍历子树
+     */
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        if (ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            if (mTouchableRegionsDirty || !CAN_TRACK_DESCENDANTS) {
+                mTouchableRegionsDirty = false;
+                mTouchableRegions.rebuild(this);
+            }
+            mSkipGesture = !mTouchableRegions.contains((int) ev.getX(), (int) ev.getY());
+        }
+        if (mSkipGesture) {
+            return false;
+        }
+        return super.dispatchTouchEvent(ev);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        mTouchableRegionsDirty = true;
+        updateVisibleBounds();
+    }
+
+    @Override
+    public void onViewAdded(View child) {
+        super.onViewAdded(child);
+        mTouchableRegionsDirty = true;
+    }
+
+    @Override
+    public void onViewRemoved(View child) {
+        super.onViewRemoved(child);
+        mTouchableRegionsDirty = true;
+    }
+
+    @Override
+    public void onDescendantInvalidated(@NonNull View child, @NonNull View target) {
+        super.onDescendantInvalidated(child, target);
+        //子View的位置、大小或者可见性变化都会走到这里，包括只改变属性的平移和透明度
+        mTouchableRegionsDirty = true;
+        scheduleVisibleBoundsUpdate();
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent event) {
         // Override onTouchEvent or it will return true.
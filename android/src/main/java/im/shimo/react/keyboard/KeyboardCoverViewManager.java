@@ -1,7 +1,12 @@
 package im.shimo.react.keyboard;
 
+import androidx.annotation.Nullable;
+
+import com.facebook.react.uimanager.ReactStylesDiffMap;
+import com.facebook.react.uimanager.StateWrapper;
 import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.uimanager.ViewGroupManager;
+import com.facebook.react.uimanager.annotations.ReactProp;
 
 public class KeyboardCoverViewManager extends ViewGroupManager<KeyboardCoverView> {
     protected static final String REACT_CLASS = "KeyboardCoverView";
@@ -15,4 +20,18 @@ public class KeyboardCoverViewManager extends ViewGroupManager<KeyboardCoverView
     public KeyboardCoverView createViewInstance(ThemedReactContext context) {
         return new KeyboardCoverView(context);
     }
+
+    @ReactProp(name = "optimizeOverdraw")
+    public void setOptimizeOverdraw(KeyboardCoverView view, boolean optimizeOverdraw) {
+        view.setOptimizeOverdraw(optimizeOverdraw);
+    }
+
+    /**
+     * 只在新架构下调用，旧架构继续使用 shadow node
+     */
+    @Override
+    public Object updateState(KeyboardCoverView view, ReactStylesDiffMap props, @Nullable StateWrapper stateWrapper) {
+        view.getLayoutState().setStateWrapper(stateWrapper);
+        return null;
+    }
 }
@@ -0,0 +1,168 @@
+package im.shimo.react.keyboard;
+
+import android.os.Handler;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.queue.MessageQueueThread;
+import com.facebook.react.bridge.queue.MessageQueueThreadImpl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 键盘布局的专用通道：仍在 native modules 线程执行（shadow tree 只能在该线程修改），
+ * 但插到消息队列的最前面，不再排在其他原生模块的任务之后；
+ * 同一个 key 在执行之前只保留最后一次提交，按首次提交的顺序执行。
+ * <p>
+ * 限制：
+ * <ul>
+ * <li>只是排到队首，正在执行的任务（例如一个很长的 JS 批次）不会被打断，最坏情况仍要等它结束</li>
+ * <li>拿到 Looper 依赖 MessageQueueThreadImpl 这个内部实现，拿不到时退回到普通的排队，只是失去插队</li>
+ * <li>插队会越过已经排队的 JS updateView/createView 批次。通道只修改 JS 不设置的样式
+ * （CoverView 的位置和高度、面板尺寸，JS 端只有不变的 offSteam），所以不会被之后执行的旧批次覆盖；
+ * 节点还没由排在后面的批次创建时，任务返回 false，再排到队尾执行一次</li>
+ * </ul>
+ */
+class KeyboardLayoutLane {
+    static final int KEY_COVER = 0;
+    static final int KEY_CONTENT = 1;
+    static final int KEY_CONTENT_CHILD = 2;
+    static final int KEY_WINDOW = 3;
+
+    interface Task {
+        /**
+         * 在 native modules 线程执行
+         *
+         * @return shadow node 还不存在时返回 false，排到队尾再执行一次
+         */
+        boolean run();
+    }
+
+    /**
+     * native modules 线程的消息队列
+     */
+    interface Scheduler {
+        void postAtFront(Runnable runnable);
+
+        void postAtBack(Runnable runnable);
+    }
+
+    private final Scheduler mScheduler;
+    private final LinkedHashMap<Integer, Task> mPending = new LinkedHashMap<>();
+    private final LinkedHashMap<Integer, Task> mDeferred = new LinkedHashMap<>();
+    private boolean mScheduled;
+    private boolean mDeferredScheduled;
+
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            final ArrayList<Map.Entry<Integer, Task>> tasks;
+            synchronized (mPending) {
+                mScheduled = false;
+                tasks = new ArrayList<>(mPending.entrySet());
+                mPending.clear();
+            }
+            for (Map.Entry<Integer, Task> entry : tasks) {
+                if (!entry.getValue().run()) {
+                    defer(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    };
+
+    private final Runnable mDrainDeferred = new Runnable() {
+        @Override
+        public void run() {
+            final ArrayList<Task> tasks;
+            synchronized (mPending) {
+                mDeferredScheduled = false;
+                tasks = new ArrayList<>(mDeferred.values());
+                mDeferred.clear();
+            }
+            for (Task task : tasks) {
+                //排在之前的批次都已执行，节点仍不存在说明已经移除，不再重试
+                task.run();
+            }
+        }
+    };
+
+    KeyboardLayoutLane(ReactContext reactContext) {
+        this(new NativeModulesScheduler(reactContext));
+    }
+
+    KeyboardLayoutLane(Scheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    /**
+     * 可在任意线程调用
+     */
+    void post(int key, Task task) {
+        synchronized (mPending) {
+            if (mPending.put(key, task) != null) {
+                //还没执行，被最新的状态替换
+                KeyboardMetrics.increment(KeyboardMetrics.Counter.DUPLICATE_SKIPPED);
+            }
+            //等待重试的旧状态同样作废
+            mDeferred.remove(key);
+            if (mScheduled) {
+                return;
+            }
+            mScheduled = true;
+        }
+        mScheduler.postAtFront(mDrain);
+    }
+
+    private void defer(int key, Task task) {
+        synchronized (mPending) {
+            if (mPending.containsKey(key)) {
+                //已经有更新的状态
+                return;
+            }
+            mDeferred.put(key, task);
+            if (mDeferredScheduled) {
+                return;
+            }
+            mDeferredScheduled = true;
+        }
+        mScheduler.postAtBack(mDrainDeferred);
+    }
+
+    private static class NativeModulesScheduler implements Scheduler {
+        private final ReactContext mReactContext;
+        private @Nullable Handler mHandler;
+
+        NativeModulesScheduler(ReactContext reactContext) {
+            mReactContext = reactContext;
+        }
+
+        @Override
+        public void postAtFront(Runnable runnable) {
+            final Handler handler = getHandler();
+            if (handler != null) {
+                handler.postAtFrontOfQueue(runnable);
+            } else {
+                postAtBack(runnable);
+            }
+        }
+
+        @Override
+        public void postAtBack(Runnable runnable) {
+            mReactContext.runOnNativeModulesQueueThread(runnable);
+        }
+
+        private @Nullable Handler getHandler() {
+            if (mHandler == null && mReactContext.hasActiveCatalystInstance()) {
+                MessageQueueThread thread = mReactContext.getCatalystInstance()
+                        .getReactQueueConfiguration().getNativeModulesQueueThread();
+                if (thread instanceof MessageQueueThreadImpl) {
+                    mHandler = new Handler(((MessageQueueThreadImpl) thread).getLooper());
+                }
+            }
+            return mHandler;
+        }
+    }
+}
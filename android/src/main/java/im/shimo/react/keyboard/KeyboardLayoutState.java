@@ -0,0 +1,118 @@
+package im.shimo.react.keyboard;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.DisplayMetricsHolder;
+import com.facebook.react.uimanager.StateWrapper;
+
+/**
+ * 新架构(Fabric)下没有可以修改的 shadow node，键盘的几何信息通过组件 state 交给布局：
+ * {width, height, bottom}，单位dp，由 ComponentDescriptor 在 adopt 时写入 Yoga 节点。
+ * 每个 View 一个实例，StateWrapper 由 ViewManager.updateState 设置，为空时是旧架构，调用方继续走 shadow node。
+ * 与上一次推送的相同时不再推送，避免多余的 commit
+ */
+class KeyboardLayoutState {
+    static final String KEY_WIDTH = "width";
+    static final String KEY_HEIGHT = "height";
+    static final String KEY_BOTTOM = "bottom";
+
+    /**
+     * state 的接收方，新架构下是组件的 StateWrapper
+     */
+    interface Target {
+        void updateState(WritableMap state);
+    }
+
+    private volatile @Nullable Target mTarget;
+    private float mDensity;
+    private float mWidth = -1;
+    private float mHeight = -1;
+    private float mBottom = -1;
+
+    void setStateWrapper(@Nullable final StateWrapper stateWrapper) {
+        setTarget(stateWrapper == null ? null : new Target() {
+            @Override
+            public void updateState(WritableMap state) {
+                stateWrapper.updateState(state);
+            }
+        });
+    }
+
+    /**
+     * 每次 state 变化都会重新设置；只有卸载或重新挂载时才丢弃上一次推送的值，那时的 state 是空的
+     */
+    synchronized void setTarget(@Nullable Target target) {
+        if (target == null || mTarget == null) {
+            mWidth = mHeight = mBottom = -1;
+        }
+        mTarget = target;
+    }
+
+    boolean isActive() {
+        return mTarget != null;
+    }
+
+    /**
+     * 测试用，默认使用屏幕的 density
+     */
+    synchronized void setDensity(float density) {
+        mDensity = density;
+    }
+
+    /**
+     * 单位px，可以在任意线程调用
+     *
+     * @param height 小于0时不修改高度
+     * @param bottom 小于0时不修改bottom
+     * @return 没有 StateWrapper（旧架构）时返回false，由调用方走 shadow node 的逻辑
+     */
+    boolean update(int width, int height, int bottom) {
+        final Target target = mTarget;
+        if (target == null) {
+            return false;
+        }
+        final WritableMap state = build(width, height, bottom, createMap());
+        if (state != null) {
+            target.updateState(state);
+        } else {
+            KeyboardMetrics.increment(KeyboardMetrics.Counter.DUPLICATE_SKIPPED);
+        }
+        return true;
+    }
+
+    /**
+     * @return 把变化的值写入 state，与上一次相同时返回 null
+     */
+    synchronized @Nullable WritableMap build(int width, int height, int bottom, WritableMap state) {
+        final float w = toDip(width);
+        final float h = height > -1 ? toDip(height) : mHeight;
+        final float b = bottom > -1 ? toDip(bottom) : mBottom;
+        if (w == mWidth && h == mHeight && b == mBottom) {
+            return null;
+        }
+        mWidth = w;
+        mHeight = h;
+        mBottom = b;
+        state.putDouble(KEY_WIDTH, w);
+        if (h > -1) {
+            state.putDouble(KEY_HEIGHT, h);
+        }
+        if (b > -1) {
+            state.putDouble(KEY_BOTTOM, b);
+        }
+        return state;
+    }
+
+    /**
+     * 测试中替换为不依赖 native 的实现
+     */
+    WritableMap createMap() {
+        return Arguments.createMap();
+    }
+
+    private float toDip(int px) {
+        return px / (mDensity > 0 ? mDensity : DisplayMetricsHolder.getScreenDisplayMetrics().density);
+    }
+}
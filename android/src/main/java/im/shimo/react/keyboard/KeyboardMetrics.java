@@ -0,0 +1,141 @@
+package im.shimo.react.keyboard;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 键盘相关的性能计数，默认关闭，打开后各处调用 increment 计数
+ */
+public class KeyboardMetrics {
+    public enum Counter {
+        /**
+         * KeyboardCoverView.draw 的次数
+         */
+        COVER_DRAW,
+        /**
+         * KeyboardCoverView 每次绘制时裁剪范围的面积之和(px²)，不是实际光栅化的像素数
+         */
+        COVER_DRAW_AREA,
+        /**
+         * KeyboardContentView.draw 的次数
+         */
+        CONTENT_DRAW,
+        /**
+         * 面板尺寸变化的次数，每次都会经 updateNodeSize 触发一次 HOST_LAYOUT
+         */
+        CONTENT_LAYOUT,
+        /**
+         * 触发全局布局的次数：显式的 dispatchViewUpdates，以及 updateNodeSize 里隐式的 dispatchViewUpdates
+         * （没有待执行的 UI 操作时才会执行，所以这里是上限）
+         */
+        HOST_LAYOUT,
+        /**
+         * 检测到键盘打开、关闭的次数
+         */
+        TRANSITION,
+        /**
+         * 面板 PopupWindow 的 update、showAtLocation 次数
+         */
+        POPUP_UPDATE,
+        /**
+         * 发送给 JS 的事件数
+         */
+        EVENT_SENT,
+        /**
+         * 位置、尺寸没有变化而跳过的更新次数
+         */
+        DUPLICATE_SKIPPED,
+        /**
+         * 键盘过渡期间估算的掉帧数
+         */
+        DROPPED_FRAMES
+    }
+
+    public enum Histogram {
+        /**
+         * showKeyboard（等输入框就绪后请求输入法）从调用到确认键盘打开的耗时
+         */
+        SHOW_KEYBOARD_READY,
+        /**
+         * showKeyboardOnTouch（延迟后模拟点击）从调用到确认键盘打开的耗时，与 SHOW_KEYBOARD_READY 终点相同
+         */
+        SHOW_KEYBOARD_TOUCH,
+        /**
+         * 检测到键盘变化到新布局画出第一帧的耗时
+         */
+        DETECTION_TO_FRAME,
+        /**
+         * 收到 showPanel 命令（或 swapToPanel）到面板画出第一帧的耗时
+         */
+        PANEL_COMMAND_TO_FRAME,
+        /**
+         * 收到 contentVisible prop 到面板画出第一帧的耗时，不含 JS 重新渲染和 prop diff
+         */
+        PANEL_PROP_TO_FRAME
+    }
+
+    /**
+     * 直方图各个桶的上限(ms)，最后一个桶不设上限
+     */
+    public static final long[] HISTOGRAM_BUCKETS = {16, 32, 64, 128, 256, 512};
+
+    private static volatile boolean mEnabled;
+    private static final AtomicLongArray mCounters = new AtomicLongArray(Counter.values().length);
+    private static final AtomicLongArray mHistograms =
+            new AtomicLongArray(Histogram.values().length * (HISTOGRAM_BUCKETS.length + 1));
+
+    public static boolean isEnabled() {
+        return mEnabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    static void increment(Counter counter) {
+        if (mEnabled) {
+            mCounters.incrementAndGet(counter.ordinal());
+        }
+    }
+
+    static void add(Counter counter, long delta) {
+        if (mEnabled) {
+            mCounters.addAndGet(counter.ordinal(), delta);
+        }
+    }
+
+    public static long get(Counter counter) {
+        return mCounters.get(counter.ordinal());
+    }
+
+    static void record(Histogram histogram, long millis) {
+        if (!mEnabled) {
+            return;
+        }
+        int bucket = 0;
+        while (bucket < HISTOGRAM_BUCKETS.length && millis > HISTOGRAM_BUCKETS[bucket]) {
+            bucket++;
+        }
+        mHistograms.incrementAndGet(histogram.ordinal() * (HISTOGRAM_BUCKETS.length + 1) + bucket);
+    }
+
+    /**
+     * @return 各个桶的计数，长度为 HISTOGRAM_BUCKETS.length + 1
+     */
+    public static long[] get(Histogram histogram) {
+        final int size = HISTOGRAM_BUCKETS.length + 1;
+        long[] buckets = new long[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = mHistograms.get(histogram.ordinal() * size + i);
+        }
+        return buckets;
+    }
+
+    public static void reset() {
+        for (int i = 0; i < mCounters.length(); i++) {
+            mCounters.set(i, 0);
+        }
+        for (int i = 0; i < mHistograms.length(); i++) {
+            mHistograms.set(i, 0);
+        }
+    }
+}
@@ -1,53 +1,443 @@
 package im.shimo.react.keyboard;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
+import android.util.Log;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
 
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.UiThreadUtil;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.module.annotations.ReactModule;
 import com.facebook.react.uimanager.NativeViewHierarchyManager;
 import com.facebook.react.uimanager.UIBlock;
 import com.facebook.react.uimanager.UIManagerModule;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.Locale;
 
 @ReactModule(name = KeyboardModule.NAME)
 public class KeyboardModule extends ReactContextBaseJavaModule {
     /* package */ static final String NAME = "KeyboardViewModule";
+    private final static String TAG = "KeyboardModule";
+    private static final String EVENT_HARDWARE_KEYBOARD_MODE = "InHardwareKeyboardModeNameEvent";
+    /**
+     * 与 JS 的 CONFIRM_TIMEOUT 一致(ms)
+     */
+    private static final long DEFAULT_CONFIRM_TIMEOUT = 500;
 
     private InputMethodManager mInputMethodManager;
+    /**
+     * 性能浮层相关的状态只在UI线程读写
+     */
+    private @Nullable KeyboardPerformanceOverlay mOverlay;
+    private boolean mOverlayEnabled;
+    /**
+     * 计数是否由浮层打开，关闭浮层时只关闭由它打开的计数
+     */
+    private boolean mMetricsEnabledByOverlay;
+
+    private final LifecycleEventListener mLifecycleEventListener = new LifecycleEventListener() {
+        @Override
+        public void onHostResume() {
+            if (mOverlayEnabled) {
+                //Activity 可能已经重建，浮层跟随当前的 Activity
+                attachOverlay(getCurrentActivity());
+            }
+        }
+
+        @Override
+        public void onHostPause() {
+
+        }
+
+        @Override
+        public void onHostDestroy() {
+            detachOverlay();
+        }
+    };
+
+    private final ComponentCallbacks mComponentCallbacks = new ComponentCallbacks() {
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+            if (HardwareKeyboardDetector.update(newConfig)) {
+                onHardwareKeyboardModeChanged(HardwareKeyboardDetector.isInHardwareKeyboardMode());
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+
+        }
+    };
 
     KeyboardModule(ReactApplicationContext reactContext) {
         super(reactContext);
         mInputMethodManager = (InputMethodManager) reactContext.getSystemService(Context.INPUT_METHOD_SERVICE);
     }
 
+    @Override
+    public void initialize() {
+        super.initialize();
+        HardwareKeyboardDetector.update(getReactApplicationContext().getResources().getConfiguration());
+        getReactApplicationContext().registerComponentCallbacks(mComponentCallbacks);
+        getReactApplicationContext().addLifecycleEventListener(mLifecycleEventListener);
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        super.onCatalystInstanceDestroy();
+        getReactApplicationContext().unregisterComponentCallbacks(mComponentCallbacks);
+        getReactApplicationContext().removeLifecycleEventListener(mLifecycleEventListener);
+        UiThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                setOverlayEnabled(false);
+            }
+        });
+    }
+
+    private void onHardwareKeyboardModeChanged(final boolean inHardwareKeyboardMode) {
+        UiThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                AdjustResizeWithFullScreen.resync();
+            }
+        });
+        if (getReactApplicationContext().hasActiveCatalystInstance()) {
+            getReactApplicationContext()
+                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(EVENT_HARDWARE_KEYBOARD_MODE, inHardwareKeyboardMode);
+        }
+    }
+
     @Override
     public String getName() {
         return NAME;
     }
 
-    @ReactMethod
+    /**
+     * 原来的无参版本，供 native 代码调用，不等待确认。
+     * JS 的 KeyboardView.dismiss() 不传参数时使用默认的等待时间
+     */
     public void dismiss() {
+        dismiss(DEFAULT_CONFIRM_TIMEOUT, null);
+    }
+
+    /**
+     * 收起键盘，键盘真正关闭后 resolve {hidden, confirmedBy, latency}
+     *
+     * @param timeout 等待确认的最长时间(ms)
+     */
+    @ReactMethod
+    public void dismiss(final double timeout, @Nullable final Promise promise) {
         getReactApplicationContext().getNativeModule(UIManagerModule.class).addUIBlock(new UIBlock() {
             public void execute(NativeViewHierarchyManager nativeViewHierarchyManager) {
                 Activity activiy = getCurrentActivity();
+                View focus = activiy == null ? null : activiy.getWindow().getCurrentFocus();
+                final KeyboardVisibilityWaiter waiter = KeyboardVisibilityWaiter.start(false, (long) timeout,
+                        new KeyboardVisibilityWaiter.Callback() {
+                            @Override
+                            public void onResult(boolean reached, String confirmedBy, long latency) {
+                                if (promise != null) {
+                                    promise.resolve(createVisibilityResult("hidden", reached, confirmedBy, latency));
+                                }
+                            }
+                        });
 
-                if (activiy != null) {
-                    View focus = activiy.getWindow().getCurrentFocus();
+                if (focus != null) {
+                    focus.clearFocus();
+                    mInputMethodManager.hideSoftInputFromWindow(focus.getWindowToken(), InputMethodManager.HIDE_NOT_ALWAYS,
+                            waiter.createResultReceiver());
+                } else {
+                    //没有焦点，输入法不会有答复
+                    waiter.finish(!KeyboardStateStore.getInstance().getSnapshot().isOpened(),
+                            KeyboardVisibilityWaiter.CONFIRMED_BY_STATE);
+                }
+            }
+        });
 
-                    if (focus != null) {
-                        focus.clearFocus();
-                        mInputMethodManager.hideSoftInputFromWindow(focus.getWindowToken(), InputMethodManager.HIDE_NOT_ALWAYS);
-                    }
+    }
+
+    private static WritableMap createVisibilityResult(String key, boolean reached, String confirmedBy, long latency) {
+        WritableMap map = Arguments.createMap();
+        map.putBoolean(key, reached);
+        map.putString("confirmedBy", confirmedBy);
+        map.putDouble("latency", latency);
+        return map;
+    }
+
+    /**
+     * 键盘切换到面板，在同一帧内完成，避免 dismiss 之后 CoverView 掉下去再弹回来
+     */
+    @ReactMethod
+    public void swapToPanel(final int reactTag, final int height) {
+        getReactApplicationContext().getNativeModule(UIManagerModule.class).addUIBlock(new UIBlock() {
+            public void execute(NativeViewHierarchyManager nativeViewHierarchyManager) {
+                View view = nativeViewHierarchyManager.resolveView(reactTag);
+                if (view instanceof KeyboardView) {
+                    ((KeyboardView) view).swapToPanel(height);
+                }
+            }
+        });
+    }
+
+    @ReactMethod
+    public void swapToKeyboard(final int reactTag) {
+        getReactApplicationContext().getNativeModule(UIManagerModule.class).addUIBlock(new UIBlock() {
+            public void execute(NativeViewHierarchyManager nativeViewHierarchyManager) {
+                View view = nativeViewHierarchyManager.resolveView(reactTag);
+                if (view instanceof KeyboardView) {
+                    ((KeyboardView) view).swapToKeyboard();
+                }
+            }
+        });
+    }
+
+    /**
+     * 键盘开关检测的过滤配置：openThreshold/closeThreshold(dp)、debounce(ms)、ignoreFloatingKeyboard
+     */
+    @ReactMethod
+    public void setKeyboardDetectionOptions(ReadableMap options) {
+        KeyboardStatusFilter filter = AdjustResizeWithFullScreen.getStatusFilter();
+        if (options.hasKey("openThreshold") || options.hasKey("closeThreshold")) {
+            //没有传的值保持不变
+            float openThreshold = options.hasKey("openThreshold") ? (float) options.getDouble("openThreshold") : filter.getOpenThreshold();
+            float closeThreshold = options.hasKey("closeThreshold") ? (float) options.getDouble("closeThreshold") : filter.getCloseThreshold();
+            filter.setThresholds(openThreshold, closeThreshold);
+        }
+        if (options.hasKey("debounce")) {
+            filter.setDebounce(options.getInt("debounce"));
+        }
+        if (options.hasKey("ignoreFloatingKeyboard")) {
+            filter.setIgnoreFloatingKeyboard(options.getBoolean("ignoreFloatingKeyboard"));
+        }
+    }
+
+    /**
+     * 等目标输入框就绪后再请求输入法，键盘真正打开后 resolve {shown, confirmedBy, latency}
+     *
+     * @param reactTag 输入框的 tag，小于0时使用当前焦点
+     * @param timeout  等待确认的最长时间(ms)
+     */
+    @ReactMethod
+    public void showKeyboard(final int reactTag, final double timeout, final Promise promise) {
+        showKeyboard(reactTag, timeout, promise, false);
+    }
 
+    /**
+     * 与 showKeyboard 相同，但使用旧的模拟点击方式，用于对比两者的耗时
+     */
+    @ReactMethod
+    public void showKeyboardOnTouch(final int reactTag, final double timeout, final Promise promise) {
+        showKeyboard(reactTag, timeout, promise, true);
+    }
+
+    /**
+     * 两种方式都以 KeyboardVisibilityWaiter 确认键盘打开为终点记录耗时
+     */
+    private void showKeyboard(final int reactTag, final double timeout, final Promise promise, final boolean onTouch) {
+        getReactApplicationContext().getNativeModule(UIManagerModule.class).addUIBlock(new UIBlock() {
+            public void execute(NativeViewHierarchyManager nativeViewHierarchyManager) {
+                View target = null;
+                if (reactTag > -1) {
+                    target = nativeViewHierarchyManager.resolveView(reactTag);
+                } else if (getCurrentActivity() != null) {
+                    target = getCurrentActivity().getWindow().getCurrentFocus();
                 }
+                final KeyboardVisibilityWaiter waiter = KeyboardVisibilityWaiter.start(true, (long) timeout,
+                        new KeyboardVisibilityWaiter.Callback() {
+                            @Override
+                            public void onResult(boolean reached, String confirmedBy, long latency) {
+                                if (reached) {
+                                    KeyboardMetrics.record(onTouch ? KeyboardMetrics.Histogram.SHOW_KEYBOARD_TOUCH
+                                            : KeyboardMetrics.Histogram.SHOW_KEYBOARD_READY, latency);
+                                }
+                                promise.resolve(createVisibilityResult("shown", reached, confirmedBy, latency));
+                            }
+                        });
+                if (onTouch) {
+                    KeyboardUtil.showKeyboardOnTouch(target);
+                    return;
+                }
+                KeyboardUtil.showKeyboardWhenReady(target, new KeyboardUtil.OnShowKeyboardListener() {
+                    @Override
+                    public void onShowKeyboard(boolean shown, boolean unchanged, long latency) {
+                        //键盘本来就是打开的，不会再有布局变化，直接 resolve
+                        waiter.onImeResult(shown, unchanged);
+                    }
+                });
+            }
+        });
+    }
+
+    @ReactMethod
+    public void getInHardwareKeyboardMode(Promise promise) {
+        promise.resolve(HardwareKeyboardDetector.isInHardwareKeyboardMode());
+    }
+
+    @ReactMethod
+    public void addListener(String eventName) {
+        // Required for NativeEventEmitter
+    }
+
+    @ReactMethod
+    public void removeListeners(int count) {
+        // Required for NativeEventEmitter
+    }
+
+    /**
+     * 过渡动画期间的硬件层策略：auto、always、never
+     */
+    @ReactMethod
+    public void setHardwareLayerPolicy(String policy) {
+        HardwareLayerPolicy layerPolicy = HardwareLayerPolicy.fromString(policy);
+        if (layerPolicy == null) {
+            Log.w(TAG, "setHardwareLayerPolicy,unknown policy=" + policy);
+            return;
+        }
+        HardwareLayerPolicy.set(layerPolicy);
+    }
+
+    /**
+     * 跟随键盘的精度策略：policy(auto、full、reduced)、slowFrames、recoverFrames(刷新周期的倍数)
+     */
+    @ReactMethod
+    public void setFrameBudgetPolicy(ReadableMap options) {
+        FrameBudgetMonitor monitor = FrameBudgetMonitor.getInstance();
+        if (options.hasKey("policy")) {
+            FrameBudgetMonitor.Policy policy = FrameBudgetMonitor.Policy.fromString(options.getString("policy"));
+            if (policy == null) {
+                Log.w(TAG, "setFrameBudgetPolicy,unknown policy=" + options.getString("policy"));
+            } else {
+                monitor.setPolicy(policy);
+            }
+        }
+        if (options.hasKey("slowFrames") || options.hasKey("recoverFrames")) {
+            float slowFrames = options.hasKey("slowFrames") ? (float) options.getDouble("slowFrames") : monitor.getSlowFrames();
+            float recoverFrames = options.hasKey("recoverFrames") ? (float) options.getDouble("recoverFrames") : monitor.getRecoverFrames();
+            monitor.setThresholds(slowFrames, recoverFrames);
+        }
+    }
+
+    @ReactMethod
+    public void getFrameBudgetPolicy(Promise promise) {
+        FrameBudgetMonitor monitor = FrameBudgetMonitor.getInstance();
+        WritableMap map = Arguments.createMap();
+        map.putString("policy", monitor.getPolicy().name().toLowerCase(Locale.US));
+        map.putString("mode", monitor.getMode().name().toLowerCase(Locale.US));
+        map.putDouble("slowFrames", monitor.getSlowFrames());
+        map.putDouble("recoverFrames", monitor.getRecoverFrames());
+        promise.resolve(map);
+    }
+
+    @ReactMethod
+    public void setMetricsEnabled(final boolean enabled) {
+        KeyboardMetrics.setEnabled(enabled);
+        UiThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                //显式设置过，关闭浮层时不再改动
+                mMetricsEnabledByOverlay = false;
             }
         });
+    }
+
+    @ReactMethod
+    public void getMetrics(Promise promise) {
+        WritableMap map = Arguments.createMap();
+        for (KeyboardMetrics.Counter counter : KeyboardMetrics.Counter.values()) {
+            map.putDouble(counter.name(), KeyboardMetrics.get(counter));
+        }
+        WritableArray bucketLimits = Arguments.createArray();
+        for (long limit : KeyboardMetrics.HISTOGRAM_BUCKETS) {
+            bucketLimits.pushDouble(limit);
+        }
+        map.putArray("histogramBuckets", bucketLimits);
+        for (KeyboardMetrics.Histogram histogram : KeyboardMetrics.Histogram.values()) {
+            WritableArray buckets = Arguments.createArray();
+            for (long count : KeyboardMetrics.get(histogram)) {
+                buckets.pushDouble(count);
+            }
+            map.putArray(histogram.name(), buckets);
+        }
+        promise.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetMetrics() {
+        KeyboardMetrics.reset();
+    }
+
+    /**
+     * 显示或隐藏性能浮层，只在 debuggable 的包里有效；
+     * 显示时计数没有打开则一起打开，隐藏时再关闭
+     */
+    @ReactMethod
+    public void setPerformanceOverlayEnabled(final boolean enabled) {
+        if (enabled && !isDebuggable()) {
+            Log.w(TAG, "setPerformanceOverlayEnabled: ignored in release builds");
+            return;
+        }
+        UiThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                setOverlayEnabled(enabled);
+            }
+        });
+    }
+
+    private boolean isDebuggable() {
+        return (getReactApplicationContext().getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    }
+
+    private void setOverlayEnabled(boolean enabled) {
+        if (mOverlayEnabled == enabled) {
+            return;
+        }
+        mOverlayEnabled = enabled;
+        if (enabled) {
+            if (!KeyboardMetrics.isEnabled()) {
+                KeyboardMetrics.setEnabled(true);
+                mMetricsEnabledByOverlay = true;
+            }
+            attachOverlay(getCurrentActivity());
+        } else {
+            detachOverlay();
+            if (mMetricsEnabledByOverlay) {
+                mMetricsEnabledByOverlay = false;
+                KeyboardMetrics.setEnabled(false);
+            }
+        }
+    }
+
+    private void attachOverlay(@Nullable Activity activity) {
+        if (activity == null || (mOverlay != null && mOverlay.isAttachedTo(activity))) {
+            return;
+        }
+        detachOverlay();
+        mOverlay = new KeyboardPerformanceOverlay(activity);
+        mOverlay.attach();
+    }
 
+    private void detachOverlay() {
+        if (mOverlay != null) {
+            mOverlay.detach();
+            mOverlay = null;
+        }
     }
 
     @ReactMethod
@@ -0,0 +1,36 @@
+package im.shimo.react.keyboard;
+
+/**
+ * 键盘移动事件里的高度和进度，与 View 无关，单独拿出来便于测试
+ */
+final class KeyboardMoveCalculator {
+    private KeyboardMoveCalculator() {
+    }
+
+    /**
+     * CoverView 过渡动画中键盘露出的高度：偏移即键盘还未走完的距离。
+     * 打开时偏移为正，从键盘高度减到 0；收起时目标为 0，偏移为负，从 -键盘高度 增到 0
+     *
+     * @param targetHeight   过渡结束时的键盘高度(px)，收起时为 0
+     * @param coverOffset    CoverView 当前的平移(px)
+     * @param keyboardHeight 键盘高度(px)，限制插值器越界时的结果
+     */
+    static int heightDuringTransition(int targetHeight, float coverOffset, int keyboardHeight) {
+        final int height = targetHeight - Math.round(coverOffset);
+        return Math.max(0, Math.min(height, Math.max(targetHeight, keyboardHeight)));
+    }
+
+    /**
+     * 输入法动画中键盘露出的高度，导航栏部分不算
+     */
+    static int heightFromInsets(int imeBottom, int navigationBottom) {
+        return Math.max(0, imeBottom - navigationBottom);
+    }
+
+    /**
+     * @return 0 为完全收起，1 为完全打开；键盘高度未知时为 0
+     */
+    static float progress(int height, int keyboardHeight) {
+        return keyboardHeight > 0 ? Math.min(1f, Math.max(0f, height / (float) keyboardHeight)) : 0f;
+    }
+}
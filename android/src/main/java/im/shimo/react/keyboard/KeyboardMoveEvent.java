@@ -0,0 +1,48 @@
+package im.shimo.react.keyboard;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * 键盘移动的每一帧，经由 EventDispatcher 发送：同一帧里可以合并，
+ * Animated.event 使用 native driver 时直接在原生端更新动画节点，不经过 JS
+ */
+class KeyboardMoveEvent extends Event<KeyboardMoveEvent> {
+    private final float mHeight;
+    private final float mProgress;
+
+    /**
+     * @param height   键盘当前露出的高度(dp)
+     * @param progress 0 为完全收起，1 为完全打开
+     */
+    KeyboardMoveEvent(int viewTag, float height, float progress) {
+        super(viewTag);
+        mHeight = height;
+        mProgress = progress;
+    }
+
+    @Override
+    public String getEventName() {
+        return KeyboardView.Events.EVENT_MOVE.toString();
+    }
+
+    @Override
+    public boolean canCoalesce() {
+        return true;
+    }
+
+    @Override
+    public short getCoalescingKey() {
+        return 0;
+    }
+
+    @Override
+    public void dispatch(RCTEventEmitter rctEventEmitter) {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("height", mHeight);
+        map.putDouble("progress", mProgress);
+        rctEventEmitter.receiveEvent(getViewTag(), getEventName(), map);
+    }
+}
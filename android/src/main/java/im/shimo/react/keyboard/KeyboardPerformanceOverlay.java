@@ -0,0 +1,113 @@
+package im.shimo.react.keyboard;
+
+import android.app.Activity;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.view.Gravity;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.Locale;
+
+/**
+ * 调试用的性能浮层，显示 KeyboardMetrics 的实时计数，只在UI线程使用。
+ * 每个实例只属于一个 Activity，由 KeyboardModule 持有，Activity 重建或销毁时 detach
+ */
+class KeyboardPerformanceOverlay implements Runnable {
+    private static final long REFRESH_INTERVAL = 250;
+
+    private final WeakReference<Activity> mActivity;
+    private final TextView mTextView;
+    private final StringBuilder mText = new StringBuilder();
+
+    KeyboardPerformanceOverlay(Activity activity) {
+        mActivity = new WeakReference<>(activity);
+        mTextView = new TextView(activity);
+        mTextView.setTypeface(Typeface.MONOSPACE);
+        mTextView.setTextSize(10);
+        mTextView.setTextColor(Color.WHITE);
+        mTextView.setBackgroundColor(0xAA000000);
+        final int padding = (int) (4 * activity.getResources().getDisplayMetrics().density);
+        mTextView.setPadding(padding, padding, padding, padding);
+        //不拦截触摸
+        mTextView.setClickable(false);
+        mTextView.setFocusable(false);
+    }
+
+    boolean isAttachedTo(@Nullable Activity activity) {
+        return activity != null && mActivity.get() == activity && mTextView.getParent() != null;
+    }
+
+    void attach() {
+        final Activity activity = mActivity.get();
+        if (activity == null || mTextView.getParent() != null) {
+            return;
+        }
+        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.TOP | Gravity.END);
+        ((ViewGroup) activity.getWindow().getDecorView()).addView(mTextView, params);
+        run();
+    }
+
+    void detach() {
+        mTextView.removeCallbacks(this);
+        if (mTextView.getParent() != null) {
+            ((ViewGroup) mTextView.getParent()).removeView(mTextView);
+        }
+    }
+
+    @Override
+    public void run() {
+        final long transitions = KeyboardMetrics.get(KeyboardMetrics.Counter.TRANSITION);
+        final long contentLayouts = KeyboardMetrics.get(KeyboardMetrics.Counter.CONTENT_LAYOUT);
+        final long hostLayouts = KeyboardMetrics.get(KeyboardMetrics.Counter.HOST_LAYOUT);
+        mText.setLength(0);
+        mText.append(String.format(Locale.US, "transitions  %d\n", transitions));
+        mText.append(String.format(Locale.US, "layouts/tr   %.1f (panel %d, host %d)\n",
+                //面板的布局已经计入 host
+                transitions == 0 ? 0f : hostLayouts / (float) transitions,
+                contentLayouts, hostLayouts));
+        mText.append(String.format(Locale.US, "popup update %d\n", KeyboardMetrics.get(KeyboardMetrics.Counter.POPUP_UPDATE)));
+        mText.append(String.format(Locale.US, "events       %d\n", KeyboardMetrics.get(KeyboardMetrics.Counter.EVENT_SENT)));
+        mText.append(String.format(Locale.US, "dup skipped  %d\n", KeyboardMetrics.get(KeyboardMetrics.Counter.DUPLICATE_SKIPPED)));
+        mText.append(String.format(Locale.US, "detect>frame p50 %s p90 %s\n",
+                percentile(KeyboardMetrics.Histogram.DETECTION_TO_FRAME, 0.5f),
+                percentile(KeyboardMetrics.Histogram.DETECTION_TO_FRAME, 0.9f)));
+        mText.append(String.format(Locale.US, "show ready   p50 %s touch p50 %s\n",
+                percentile(KeyboardMetrics.Histogram.SHOW_KEYBOARD_READY, 0.5f),
+                percentile(KeyboardMetrics.Histogram.SHOW_KEYBOARD_TOUCH, 0.5f)));
+        mText.append(String.format(Locale.US, "dropped      %d\n", KeyboardMetrics.get(KeyboardMetrics.Counter.DROPPED_FRAMES)));
+        mText.append(String.format(Locale.US, "cover area   %d\n", KeyboardMetrics.get(KeyboardMetrics.Counter.COVER_DRAW_AREA)));
+        mText.append("mode         ").append(FrameBudgetMonitor.getInstance().getMode());
+        mTextView.setText(mText);
+        mTextView.postDelayed(this, REFRESH_INTERVAL);
+    }
+
+    /**
+     * @return 百分位所在桶的上限，例如 "<=32ms"
+     */
+    private static String percentile(KeyboardMetrics.Histogram histogram, float fraction) {
+        final long[] buckets = KeyboardMetrics.get(histogram);
+        long total = 0;
+        for (long count : buckets) {
+            total += count;
+        }
+        if (total == 0) {
+            return "-";
+        }
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            count += buckets[i];
+            if (count >= total * fraction) {
+                return i < KeyboardMetrics.HISTOGRAM_BUCKETS.length
+                        ? "<=" + KeyboardMetrics.HISTOGRAM_BUCKETS[i] + "ms"
+                        : ">" + KeyboardMetrics.HISTOGRAM_BUCKETS[i - 1] + "ms";
+            }
+        }
+        return "-";
+    }
+}
@@ -0,0 +1,73 @@
+package im.shimo.react.keyboard;
+
+import android.graphics.Rect;
+
+/**
+ * 键盘状态的不可变快照，尺寸单位均为px
+ */
+public class KeyboardState {
+    static final KeyboardState EMPTY = new KeyboardState(false, 0, new Rect(), 0, 0);
+
+    private final boolean mOpened;
+    private final int mKeyboardHeight;
+    private final Rect mVisibleFrame;
+    private final int mWindowBottom;
+    private final long mTimestamp;
+
+    KeyboardState(boolean opened, int keyboardHeight, Rect visibleFrame, int windowBottom, long timestamp) {
+        mOpened = opened;
+        mKeyboardHeight = keyboardHeight;
+        mVisibleFrame = new Rect(visibleFrame);
+        mWindowBottom = windowBottom;
+        mTimestamp = timestamp;
+    }
+
+    public boolean isOpened() {
+        return mOpened;
+    }
+
+    /**
+     * 最近一次打开时的键盘高度，键盘关闭后保留
+     */
+    public int getKeyboardHeight() {
+        return mKeyboardHeight;
+    }
+
+    /**
+     * getWindowVisibleDisplayFrame 的结果
+     */
+    public Rect getVisibleFrame() {
+        return new Rect(mVisibleFrame);
+    }
+
+    public int getWindowBottom() {
+        return mWindowBottom;
+    }
+
+    /**
+     * SystemClock.uptimeMillis()
+     */
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    /**
+     * 不比较时间戳
+     */
+    boolean sameAs(KeyboardState other) {
+        return other != null
+                && mOpened == other.mOpened
+                && mKeyboardHeight == other.mKeyboardHeight
+                && mWindowBottom == other.mWindowBottom
+                && mVisibleFrame.equals(other.mVisibleFrame);
+    }
+
+    @Override
+    public String toString() {
+        return "KeyboardState{opened=" + mOpened
+                + ", keyboardHeight=" + mKeyboardHeight
+                + ", visibleFrame=" + mVisibleFrame
+                + ", windowBottom=" + mWindowBottom
+                + ", timestamp=" + mTimestamp + "}";
+    }
+}
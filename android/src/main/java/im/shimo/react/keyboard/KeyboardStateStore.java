@@ -0,0 +1,123 @@
+package im.shimo.react.keyboard;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.UiThreadUtil;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * 键盘状态的全局存储，由 AdjustResizeWithFullScreen 写入，
+ * 其他原生模块可以读取快照或者订阅变化，无需各自监听 getWindowVisibleDisplayFrame。
+ * <p>
+ * 只有挂载了 KeyboardView、并且页面在前台时才会写入：没有 KeyboardView 时快照一直是初始的关闭状态；
+ * 页面进入后台或窗口不可见时暂停写入，快照停留在暂停前的状态，恢复后重新测量一次再写入。
+ * 需要判断快照是否过期时可以比较 {@link KeyboardState#getTimestamp()}
+ */
+public class KeyboardStateStore {
+    private final static String TAG = "KeyboardStateStore";
+    private static final KeyboardStateStore INSTANCE = new KeyboardStateStore();
+
+    private static final Executor UI_THREAD_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            if (UiThreadUtil.isOnUiThread()) {
+                command.run();
+            } else {
+                UiThreadUtil.runOnUiThread(command);
+            }
+        }
+    };
+
+    public interface Listener {
+        void onKeyboardStateChanged(KeyboardState state);
+    }
+
+    private static class Subscription {
+        private final Listener mListener;
+        private final Executor mExecutor;
+
+        Subscription(Listener listener, Executor executor) {
+            mListener = listener;
+            mExecutor = executor;
+        }
+    }
+
+    private final CopyOnWriteArrayList<Subscription> mSubscriptions = new CopyOnWriteArrayList<>();
+    private volatile KeyboardState mState = KeyboardState.EMPTY;
+
+    public static KeyboardStateStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 在 UI 线程回调
+     */
+    public static Executor uiThreadExecutor() {
+        return UI_THREAD_EXECUTOR;
+    }
+
+    /**
+     * 在 native modules 线程回调
+     */
+    public static Executor nativeModulesExecutor(final ReactContext reactContext) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                reactContext.runOnNativeModulesQueueThread(command);
+            }
+        };
+    }
+
+    /* package */ KeyboardStateStore() {
+    }
+
+    /**
+     * 最近一次写入的状态，暂停期间不会更新，见类的说明
+     */
+    public KeyboardState getSnapshot() {
+        return mState;
+    }
+
+    public void addListener(Listener listener) {
+        addListener(listener, UI_THREAD_EXECUTOR);
+    }
+
+    /**
+     * 状态变化时在 executor 上回调，相同的状态不重复回调；暂停写入期间不会回调
+     */
+    public void addListener(Listener listener, Executor executor) {
+        if (listener == null || executor == null) {
+            return;
+        }
+        mSubscriptions.add(new Subscription(listener, executor));
+    }
+
+    public void removeListener(Listener listener) {
+        for (Subscription subscription : mSubscriptions) {
+            if (subscription.mListener == listener) {
+                mSubscriptions.remove(subscription);
+            }
+        }
+    }
+
+    /* package */ void publish(final KeyboardState state) {
+        if (state.sameAs(mState)) {
+            return;
+        }
+        mState = state;
+        if (KeyboardViewManager.DEBUG) {
+            Log.e(TAG, "publish,state=" + state + ",listeners=" + mSubscriptions.size());
+        }
+        for (final Subscription subscription : mSubscriptions) {
+            subscription.mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    subscription.mListener.onKeyboardStateChanged(state);
+                }
+            });
+        }
+    }
+}
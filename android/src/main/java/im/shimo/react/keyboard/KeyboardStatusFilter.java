@@ -0,0 +1,127 @@
+package im.shimo.react.keyboard;
+
+import com.facebook.react.uimanager.DisplayMetricsHolder;
+
+/**
+ * 键盘开关状态的过滤，放在 OnKeyboardStatusListener 之前：
+ * 阈值按屏幕密度换算，打开和关闭使用不同的阈值（迟滞区间），
+ * 状态翻转之后的一段时间内不再反向翻转（去抖），避免高度在阈值附近抖动时反复回调
+ */
+public class KeyboardStatusFilter {
+    public static final int STATE_CLOSED = 0;
+    public static final int STATE_OPENED = 1;
+    /**
+     * 去抖中，状态还未确认
+     */
+    public static final int STATE_PENDING = 2;
+
+    private float mOpenThreshold = 120;
+    private float mCloseThreshold = 80;
+    private long mDebounce = 100;
+    private boolean mIgnoreFloatingKeyboard = true;
+    /**
+     * 小于等于0时使用屏幕密度
+     */
+    private float mDensity;
+
+    private boolean mOpened;
+    private long mLastChangeTime = -1;
+
+    /**
+     * @param openThreshold 超过该高度(dp)视为键盘打开
+     * @param closeThreshold 低于该高度(dp)视为键盘关闭，不大于 openThreshold
+     */
+    public synchronized void setThresholds(float openThreshold, float closeThreshold) {
+        mOpenThreshold = openThreshold;
+        mCloseThreshold = Math.min(closeThreshold, openThreshold);
+    }
+
+    public synchronized float getOpenThreshold() {
+        return mOpenThreshold;
+    }
+
+    public synchronized float getCloseThreshold() {
+        return mCloseThreshold;
+    }
+
+    /**
+     * @param debounce 状态翻转之后，反向翻转需要等待的时间(ms)
+     */
+    public synchronized void setDebounce(long debounce) {
+        mDebounce = Math.max(0, debounce);
+    }
+
+    public synchronized long getDebounce() {
+        return mDebounce;
+    }
+
+    /**
+     * 指定 dp 与 px 的换算比例，不指定时使用屏幕密度
+     */
+    synchronized void setDensity(float density) {
+        mDensity = density;
+    }
+
+    public synchronized void setIgnoreFloatingKeyboard(boolean ignoreFloatingKeyboard) {
+        mIgnoreFloatingKeyboard = ignoreFloatingKeyboard;
+    }
+
+    public synchronized boolean isIgnoreFloatingKeyboard() {
+        return mIgnoreFloatingKeyboard;
+    }
+
+    /**
+     * @param heightDifference 屏幕高度-可绘区域底部，单位px
+     * @param now              SystemClock.uptimeMillis()
+     * @return STATE_OPENED、STATE_CLOSED 或 STATE_PENDING
+     */
+    public synchronized int filter(int heightDifference, long now) {
+        final boolean opened = mOpened
+                ? heightDifference > toPixel(mCloseThreshold)
+                : heightDifference > toPixel(mOpenThreshold);
+        if (opened != mOpened) {
+            if (mLastChangeTime >= 0 && now - mLastChangeTime < mDebounce) {
+                return STATE_PENDING;
+            }
+            mOpened = opened;
+            mLastChangeTime = now;
+        }
+        return mOpened ? STATE_OPENED : STATE_CLOSED;
+    }
+
+    /**
+     * @return 去抖还需等待的时间(ms)
+     */
+    public synchronized long getRemainingDebounce(long now) {
+        if (mLastChangeTime < 0) return 0;
+        return Math.max(0, mDebounce - (now - mLastChangeTime));
+    }
+
+    /**
+     * 键盘未打开，且高度变化落在关闭阈值以内：悬浮键盘、候选栏或手势导航条，没有遮住内容
+     */
+    public synchronized boolean isNotCovering(int heightDifference) {
+        return !mOpened && heightDifference <= toPixel(mCloseThreshold);
+    }
+
+    /**
+     * 外接键盘时输入法只显示候选栏或工具栏：键盘未打开，且高度没有超过打开阈值。
+     * 超过阈值的是真正弹出的软键盘（点击、showKeyboard、切换输入法），照常检测
+     */
+    public synchronized boolean isAccessoryBar(int heightDifference) {
+        return !mOpened && heightDifference <= toPixel(mOpenThreshold);
+    }
+
+    public synchronized boolean isOpened() {
+        return mOpened;
+    }
+
+    public synchronized void reset() {
+        mOpened = false;
+        mLastChangeTime = -1;
+    }
+
+    private float toPixel(float dp) {
+        return dp * (mDensity > 0 ? mDensity : DisplayMetricsHolder.getScreenDisplayMetrics().density);
+    }
+}
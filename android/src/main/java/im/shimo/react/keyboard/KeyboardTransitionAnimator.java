@@ -0,0 +1,245 @@
+package im.shimo.react.keyboard;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.animation.Interpolator;
+
+import androidx.annotation.Nullable;
+
+/**
+ * CoverView 与面板的位移动画，两者共用一个 Choreographer 时钟。
+ * 每个通道的值是相对于最终布局的偏移，布局落地时加上新旧位置的差，再逐帧回到0。
+ * 输入法上报了动画参数时使用相同的时长和插值器，否则使用临界阻尼的弹簧模型；
+ * 动画中途改变目标只会叠加偏移，不会从头开始：同一次输入法动画内保留剩余的时间，切换到弹簧时保留速度
+ */
+class KeyboardTransitionAnimator implements Choreographer.FrameCallback {
+    static final int CHANNEL_COVER = 0;
+    static final int CHANNEL_CONTENT = 1;
+    private static final int CHANNEL_COUNT = 2;
+
+    /**
+     * 输入法动画参数的有效期(ms)
+     */
+    private static final long IME_SPEC_VALIDITY = 300;
+    private static final float STIFFNESS = 700f;
+    private static final float DAMPING = 2f * (float) Math.sqrt(STIFFNESS);
+    private static final float MAX_STEP = 1f / 120;
+    private static final float MIN_OFFSET = 0.5f;
+    private static final float MIN_VELOCITY = 5f;
+    /**
+     * 插值器剩余的进度小于此值时无法再缩放剩余的曲线，重新开始
+     */
+    private static final float MIN_REMAINING = 0.001f;
+
+    /**
+     * 逐帧回调和时钟，测试时可以替换
+     */
+    interface FrameScheduler {
+        void postFrameCallback(Choreographer.FrameCallback callback);
+
+        void removeFrameCallback(Choreographer.FrameCallback callback);
+
+        long uptimeMillis();
+    }
+
+    private static final FrameScheduler CHOREOGRAPHER = new FrameScheduler() {
+        @Override
+        public void postFrameCallback(Choreographer.FrameCallback callback) {
+            Choreographer.getInstance().postFrameCallback(callback);
+        }
+
+        @Override
+        public void removeFrameCallback(Choreographer.FrameCallback callback) {
+            Choreographer.getInstance().removeFrameCallback(callback);
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+    };
+
+    interface Listener {
+        void onTransitionStart();
+
+        void onTransitionFrame(float coverOffset, float contentOffset);
+
+        void onTransitionEnd();
+    }
+
+    private final Listener mListener;
+    private final FrameScheduler mScheduler;
+    private final float[] mOffset = new float[CHANNEL_COUNT];
+    private final float[] mVelocity = new float[CHANNEL_COUNT];
+    private final float[] mStartOffset = new float[CHANNEL_COUNT];
+    private boolean mRunning;
+    private long mLastFrameNanos;
+    private long mStartNanos;
+
+    private boolean mTimed;
+    private long mDuration;
+    private @Nullable Interpolator mInterpolator;
+    /**
+     * 当前时长动画使用的输入法参数的上报时间
+     */
+    private long mTimedSpecTime = -1;
+
+    private long mImeDuration;
+    private @Nullable Interpolator mImeInterpolator;
+    private long mImeSpecTime = -1;
+
+    KeyboardTransitionAnimator(Listener listener) {
+        this(listener, CHOREOGRAPHER);
+    }
+
+    KeyboardTransitionAnimator(Listener listener, FrameScheduler scheduler) {
+        mListener = listener;
+        mScheduler = scheduler;
+    }
+
+    /**
+     * 输入法动画开始时上报的时长和插值器
+     */
+    void setImeAnimationSpec(long duration, @Nullable Interpolator interpolator) {
+        mImeDuration = duration;
+        mImeInterpolator = interpolator;
+        mImeSpecTime = mScheduler.uptimeMillis();
+    }
+
+    /**
+     * 布局位置变化了 delta，从原来的位置过渡到新位置
+     *
+     * @param delta 旧位置-新位置
+     */
+    void animateBy(int channel, float delta) {
+        if (delta == 0) {
+            return;
+        }
+        mOffset[channel] += delta;
+        retarget();
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * 直接跳到终点
+     */
+    void cancel() {
+        if (!mRunning) {
+            return;
+        }
+        mScheduler.removeFrameCallback(this);
+        finish();
+    }
+
+    private void retarget() {
+        final boolean useImeSpec = mImeSpecTime >= 0 && mImeDuration > 0
+                && mScheduler.uptimeMillis() - mImeSpecTime < IME_SPEC_VALIDITY;
+        if (useImeSpec && !(mRunning && mTimed && mTimedSpecTime == mImeSpecTime && rescaleTimed())) {
+            mDuration = mImeDuration;
+            mInterpolator = mImeInterpolator;
+            mTimedSpecTime = mImeSpecTime;
+            System.arraycopy(mOffset, 0, mStartOffset, 0, CHANNEL_COUNT);
+            mStartNanos = 0;
+        }
+        //切换到弹簧时沿用 stepTimed 记录的速度
+        mTimed = useImeSpec;
+        if (!mRunning) {
+            mRunning = true;
+            mLastFrameNanos = 0;
+            mListener.onTransitionStart();
+            mScheduler.postFrameCallback(this);
+        }
+        // 与布局落地在同一帧，先抵消掉位置变化
+        mListener.onTransitionFrame(mOffset[CHANNEL_COVER], mOffset[CHANNEL_CONTENT]);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        final boolean done = mTimed ? stepTimed(frameTimeNanos) : stepSpring(frameTimeNanos);
+        mLastFrameNanos = frameTimeNanos;
+        if (done) {
+            finish();
+        } else {
+            mListener.onTransitionFrame(mOffset[CHANNEL_COVER], mOffset[CHANNEL_CONTENT]);
+            mScheduler.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * 同一次输入法动画中途改变目标：结束时间不变，剩余的曲线按叠加后的偏移缩放
+     *
+     * @return 是否已经缩放，false 时调用方重新开始
+     */
+    private boolean rescaleTimed() {
+        if (mStartNanos == 0 || mLastFrameNanos == 0) {
+            //还没有走过一帧，重新开始即可
+            return false;
+        }
+        final float remaining = 1 - interpolate(timedFraction(mLastFrameNanos));
+        if (remaining < MIN_REMAINING) {
+            return false;
+        }
+        for (int i = 0; i < CHANNEL_COUNT; i++) {
+            mStartOffset[i] = mOffset[i] / remaining;
+        }
+        return true;
+    }
+
+    private float timedFraction(long frameTimeNanos) {
+        return Math.min(1f, (frameTimeNanos - mStartNanos) / 1e6f / mDuration);
+    }
+
+    private float interpolate(float fraction) {
+        return mInterpolator != null ? mInterpolator.getInterpolation(fraction) : fraction;
+    }
+
+    private boolean stepTimed(long frameTimeNanos) {
+        if (mStartNanos == 0) {
+            mStartNanos = frameTimeNanos;
+        }
+        final float fraction = timedFraction(frameTimeNanos);
+        final float value = interpolate(fraction);
+        final float dt = mLastFrameNanos == 0 ? 0 : (frameTimeNanos - mLastFrameNanos) / 1e9f;
+        for (int i = 0; i < CHANNEL_COUNT; i++) {
+            final float offset = mStartOffset[i] * (1 - value);
+            //由相邻两帧的偏移得到速度，中途切换到弹簧时保持连续
+            mVelocity[i] = dt > 0 ? (offset - mOffset[i]) / dt : 0;
+            mOffset[i] = offset;
+        }
+        return fraction >= 1f;
+    }
+
+    private boolean stepSpring(long frameTimeNanos) {
+        float dt = mLastFrameNanos == 0 ? 1f / 60 : Math.min(1f / 30, (frameTimeNanos - mLastFrameNanos) / 1e9f);
+        boolean done = true;
+        for (int i = 0; i < CHANNEL_COUNT; i++) {
+            float remaining = dt;
+            while (remaining > 0) {
+                float step = Math.min(MAX_STEP, remaining);
+                mVelocity[i] += (-STIFFNESS * mOffset[i] - DAMPING * mVelocity[i]) * step;
+                mOffset[i] += mVelocity[i] * step;
+                remaining -= step;
+            }
+            if (Math.abs(mOffset[i]) > MIN_OFFSET || Math.abs(mVelocity[i]) > MIN_VELOCITY) {
+                done = false;
+            }
+        }
+        return done;
+    }
+
+    private void finish() {
+        for (int i = 0; i < CHANNEL_COUNT; i++) {
+            mOffset[i] = mVelocity[i] = mStartOffset[i] = 0;
+        }
+        mTimedSpecTime = -1;
+        mRunning = false;
+        mListener.onTransitionFrame(0, 0);
+        mListener.onTransitionEnd();
+    }
+}
@@ -1,6 +1,10 @@
 package im.shimo.react.keyboard;
 
 import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ResultReceiver;
 import android.os.SystemClock;
 import android.view.MotionEvent;
 import android.view.View;
@@ -9,6 +13,19 @@ import android.view.inputmethod.InputMethodManager;
 import static android.view.inputmethod.InputMethodManager.SHOW_IMPLICIT;
 
 public class KeyboardUtil {
+    /**
+     * showKeyboardWhenReady 的重试间隔(ms)
+     */
+    private static final long[] RETRY_DELAYS = {16, 32, 64, 128, 256, 512};
+
+    public interface OnShowKeyboardListener {
+        /**
+         * @param shown     输入法是否接受了显示请求
+         * @param unchanged 键盘本来就是打开的（RESULT_UNCHANGED_SHOWN），不会再有布局变化
+         * @param latency   从调用到有结果的耗时(ms)
+         */
+        void onShowKeyboard(boolean shown, boolean unchanged, long latency);
+    }
 
     public static void showKeyboard(final View view) {
         if (view == null) {
@@ -21,6 +38,61 @@ public class KeyboardUtil {
         inputManager.showSoftInput(view, SHOW_IMPLICIT);
     }
 
+    /**
+     * 等 view 所在窗口获得焦点、输入连接建立之后再请求输入法，未就绪时按退避间隔重试
+     */
+    public static void showKeyboardWhenReady(final View view, final OnShowKeyboardListener listener) {
+        if (view == null) {
+            listener.onShowKeyboard(false, false, 0);
+            return;
+        }
+        final long start = SystemClock.uptimeMillis();
+        final Handler handler = new Handler(Looper.getMainLooper());
+        final InputMethodManager inputManager =
+                (InputMethodManager) view.getContext().getSystemService(
+                        Context.INPUT_METHOD_SERVICE);
+        handler.post(new Runnable() {
+            private int mAttempt;
+            private boolean mDone;
+
+            @Override
+            public void run() {
+                if (!view.isFocused()) {
+                    view.requestFocus();
+                }
+                if (view.hasWindowFocus() && view.isFocused() && inputManager.isActive(view)) {
+                    boolean requested = inputManager.showSoftInput(view, SHOW_IMPLICIT, new ResultReceiver(handler) {
+                        @Override
+                        protected void onReceiveResult(int resultCode, Bundle resultData) {
+                            finish(resultCode == InputMethodManager.RESULT_SHOWN
+                                            || resultCode == InputMethodManager.RESULT_UNCHANGED_SHOWN,
+                                    resultCode == InputMethodManager.RESULT_UNCHANGED_SHOWN);
+                        }
+                    });
+                    if (requested) {
+                        return;
+                    }
+                }
+                if (mAttempt < RETRY_DELAYS.length) {
+                    handler.postDelayed(this, RETRY_DELAYS[mAttempt++]);
+                } else {
+                    finish(false, false);
+                }
+            }
+
+            private void finish(boolean shown, boolean unchanged) {
+                if (mDone) {
+                    return;
+                }
+                mDone = true;
+                listener.onShowKeyboard(shown, unchanged, SystemClock.uptimeMillis() - start);
+            }
+        });
+    }
+
+    /**
+     * 旧的方式：延迟后向 view 模拟一次点击，由 view 自己请求输入法
+     */
     public static void showKeyboardOnTouch(final View view) {
         if (view == null) {
             return;
@@ -29,8 +101,12 @@ public class KeyboardUtil {
         view.postDelayed(new Runnable() {
             @Override
             public void run() {
-                view.dispatchTouchEvent(MotionEvent.obtain(SystemClock.uptimeMillis(), SystemClock.uptimeMillis(), MotionEvent.ACTION_DOWN, 0, 0, 0));
-                view.dispatchTouchEvent(MotionEvent.obtain(SystemClock.uptimeMillis(), SystemClock.uptimeMillis(), MotionEvent.ACTION_UP, 0, 0, 0));
+                MotionEvent down = MotionEvent.obtain(SystemClock.uptimeMillis(), SystemClock.uptimeMillis(), MotionEvent.ACTION_DOWN, 0, 0, 0);
+                MotionEvent up = MotionEvent.obtain(SystemClock.uptimeMillis(), SystemClock.uptimeMillis(), MotionEvent.ACTION_UP, 0, 0, 0);
+                view.dispatchTouchEvent(down);
+                view.dispatchTouchEvent(up);
+                down.recycle();
+                up.recycle();
             }
         }, 200);
     }
@@ -56,4 +132,4 @@ public class KeyboardUtil {
     }
 
 
-}
\ No newline at end of file
+}
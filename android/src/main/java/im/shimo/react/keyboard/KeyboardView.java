@@ -1,20 +1,27 @@
 package im.shimo.react.keyboard;
 
-import android.animation.ObjectAnimator;
-import android.animation.ValueAnimator;
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.Configuration;
 import android.graphics.Color;
+import android.graphics.Rect;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Build;
+import android.os.SystemClock;
 import androidx.annotation.Nullable;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
+import android.view.WindowInsets;
+import android.view.WindowInsetsAnimation;
 import android.view.WindowManager;
 import android.view.accessibility.AccessibilityEvent;
 import android.webkit.WebView;
 import android.widget.EditText;
+import android.widget.FrameLayout;
 import android.widget.PopupWindow;
 
 import com.facebook.react.bridge.Arguments;
@@ -22,6 +29,7 @@ import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.uimanager.DisplayMetricsHolder;
+import com.facebook.react.uimanager.PixelUtil;
 import com.facebook.react.uimanager.ReactShadowNode;
 import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.uimanager.UIManagerModule;
@@ -30,6 +38,11 @@ import com.facebook.yoga.YogaEdge;
 import com.facebook.yoga.YogaPositionType;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -52,7 +65,8 @@ import java.util.ArrayList;
  */
 
 
-public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEventListener, AdjustResizeWithFullScreen.OnKeyboardStatusListener {
+public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEventListener, AdjustResizeWithFullScreen.OnKeyboardStatusListener,
+        PanelCommands.Target {
     private final static String TAG = "KeyboardView";
     private final ThemedReactContext mThemedContext;
     private final UIManagerModule mNativeModule;
@@ -83,16 +97,171 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
     private boolean mKeyboardShownStatus;
     private int mUseBottom;
     private int mUseRight;
-    private ValueAnimator translationSlide;
+    private final KeyboardTransitionAnimator mTransitionAnimator;
+    private @Nullable View mPromotedView;
+    private boolean mPanelSnapshotEnabled;
+    private final AtomicInteger mEventSequence = new AtomicInteger();
+    /**
+     * 输入法高度变化时，面板只移动上边缘，高度稳定后再重新布局
+     */
+    private boolean mPanelHeightMorph;
+    /**
+     * 面板 PopupWindow 当前实际的位置和高度，高度变化过程中可能与 mPreContentTop/mPreContentHeight 不同
+     */
+    private int mPopupTop;
+    private int mPopupHeight;
+    /**
+     * 高度变化过程中面板相对窗口向下的平移，超出窗口底部的部分被裁掉
+     */
+    private int mMorphOffset;
+    private float mContentTransitionOffset;
+    /**
+     * 高度稳定（过渡动画、输入法动画结束）后的下一帧统一布局
+     */
+    private final Runnable mCommitHeightMorph = new Runnable() {
+        @Override
+        public void run() {
+            if (mContentView == null || !mHeightMorphing || mTransitionAnimator.isRunning() || mImeAnimating) {
+                //动画结束时会再次提交
+                return;
+            }
+            mHeightMorphing = false;
+            if (mContentViewPopupWindow.isShowing()
+                    && (mPopupTop != mPreContentTop || mPopupHeight != mPreContentHeight)) {
+                //高度稳定，窗口一次性调整到最终尺寸
+                updatePopupWindow(mPreContentTop, mPreContentWidth, mPreContentHeight);
+            }
+            setMorphOffset(0);
+            updateContentNodeSize(mPreContentWidth, mPreContentHeight);
+            mContentView.setSizeUpdatesSuspended(false);
+            settleLayoutCache();
+        }
+    };
+    private boolean mHeightMorphing;
+    private final OrientationLayoutCache mLayoutCache = new OrientationLayoutCache();
+    static final int DEFAULT_MAX_MOUNTED_PANELS = 3;
+    /**
+     * 带 panelName 的面板，按访问顺序排列，最久没用的在最前面
+     */
+    private final LinkedHashMap<String, KeyboardContentView> mPanels = new LinkedHashMap<>(4, 0.75f, true);
+    /**
+     * 面板在 React 里的顺序，用于 getChildAt、removeViewAt
+     */
+    private final ArrayList<KeyboardContentView> mPanelList = new ArrayList<>();
+    /**
+     * 多面板时作为 PopupWindow 的内容，面板叠放在里面，切换只改可见性
+     */
+    private @Nullable FrameLayout mPanelContainer;
+    /**
+     * JS 指定的当前面板，面板还没挂载时保持待定，由 addPanel 切换过去
+     */
+    private @Nullable String mActivePanelName;
+    /**
+     * 已经通知过 JS 卸载、还没有被移除的面板，避免重复通知
+     */
+    private final HashSet<KeyboardContentView> mEvictedPanels = new HashSet<>();
+    private int mMaxMountedPanels = DEFAULT_MAX_MOUNTED_PANELS;
+    /**
+     * 窗口尺寸变化（分屏、自由窗口）时，同步给 KeyboardViewShadowView
+     */
+    private final OnLayoutChangeListener mWindowLayoutChangeListener = new OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            if (right - left != oldRight - oldLeft || bottom - top != oldBottom - oldTop) {
+                updateWindowSize(right - left, bottom - top);
+            }
+        }
+    };
+    private boolean mResizePending;
+    private int mPendingHeightOfLayout;
+    private int mPendingBottom;
+    private final Choreographer.FrameCallback mApplyResizeCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mResizePending = false;
+            applyKeyboardResize(mPendingHeightOfLayout, mPendingBottom);
+        }
+    };
+    private final OnLayoutChangeListener mCoverLayoutChangeListener = new OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            //布局落地的这一帧开始过渡，宽度变化（旋转）时直接到位
+            if (oldBottom != 0 && bottom != oldBottom && right - left == oldRight - oldLeft) {
+                animateTransition(KeyboardTransitionAnimator.CHANNEL_COVER, oldBottom - bottom);
+            }
+            if (!mTransitionAnimator.isRunning() && !mImeAnimating) {
+                //没有过渡动画，直接到位
+                dispatchKeyboardMove(getTargetKeyboardHeight());
+            }
+            postFirstFrame();
+        }
+    };
+    /**
+     * 检测到键盘变化的时间，新布局画出第一帧之后清除
+     */
+    private long mDetectionTime = -1;
+    /**
+     * 收到显示面板的命令或 prop 的时间，面板画出第一帧之后清除
+     */
+    private long mPanelRequestTime = -1;
+    private KeyboardMetrics.Histogram mPanelRequestHistogram;
+    private final Choreographer.FrameCallback mFirstFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            final long now = SystemClock.uptimeMillis();
+            if (mDetectionTime >= 0) {
+                KeyboardMetrics.record(KeyboardMetrics.Histogram.DETECTION_TO_FRAME, now - mDetectionTime);
+                mDetectionTime = -1;
+            }
+            if (mPanelRequestTime >= 0 && mContentViewPopupWindow.isShowing()) {
+                KeyboardMetrics.record(mPanelRequestHistogram, now - mPanelRequestTime);
+                mPanelRequestTime = -1;
+            }
+        }
+    };
     // whether keyboard is shown
     private boolean mKeyboardShown = false;
     private volatile int mVisibility = -1;
     private int mOrientation = -1;
     private boolean isOrientationChange;
+    private final PanelSwap mPanelSwap;
+    private boolean mHostResumed = true;
+    /**
+     * 是否发送 onKeyboardMove
+     */
+    private boolean mKeyboardMoveEnabled;
+    private int mLastMoveHeight = -1;
+    /**
+     * API 30 以上输入法动画进行中，由 WindowInsetsAnimation 逐帧驱动 onKeyboardMove
+     */
+    private boolean mImeAnimating;
+    private final WebViewGeometryBridge mWebViewGeometryBridge = new WebViewGeometryBridge();
+    private final KeyboardLayoutLane mLayoutLane;
+
+    public enum EventCause {
+        IME("ime"),
+        PLACEHOLDER("placeholder"),
+        CONTENT("content");
+
+        private final String mName;
+
+        EventCause(final String name) {
+            mName = name;
+        }
+
+        @Override
+        public String toString() {
+            return mName;
+        }
+    }
 
     public enum Events {
         EVENT_SHOW("onKeyboardShow"),
-        EVENT_HIDE("onKeyboardHide");
+        EVENT_HIDE("onKeyboardHide"),
+        EVENT_MOVE("onKeyboardMove"),
+        EVENT_PANEL_EVICTED("onPanelEvicted");
 
         private final String mName;
 
@@ -113,10 +282,82 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
         this.navigationBarHeight = navigationBarHeight;
         this.statusBarHeight = statusBarHeight;
         mEventEmitter = context.getJSModule(RCTEventEmitter.class);
+        mLayoutLane = new KeyboardLayoutLane(context);
         context.addLifecycleEventListener(this);
 
+        mTransitionAnimator = new KeyboardTransitionAnimator(new KeyboardTransitionAnimator.Listener() {
+            @Override
+            public void onTransitionStart() {
+                if (mContentView != null && HardwareLayerPolicy.shouldPromote(getContext())
+                        && HardwareLayerPolicy.promote(mContentView)) {
+                    //只记录由这里提升的，结束时只还原它
+                    mPromotedView = mContentView;
+                }
+            }
+
+            @Override
+            public void onTransitionFrame(float coverOffset, float contentOffset) {
+                if (mCoverView != null) {
+                    mCoverView.setTranslationY(coverOffset);
+                }
+                mContentTransitionOffset = contentOffset;
+                applyContentTranslation();
+                if (!mImeAnimating) {
+                    //CoverView 跟随键盘，偏移即键盘还未走完的距离
+                    dispatchKeyboardMove(KeyboardMoveCalculator.heightDuringTransition(getTargetKeyboardHeight(),
+                            coverOffset, AdjustResizeWithFullScreen.getKeyboardHeight()));
+                }
+            }
+
+            @Override
+            public void onTransitionEnd() {
+                if (mPromotedView != null) {
+                    //面板可能已经切换，还原提升过的那个
+                    HardwareLayerPolicy.demote(mPromotedView);
+                    mPromotedView = null;
+                }
+                commitHeightMorphWhenSettled();
+                settleLayoutCache();
+            }
+        });
+
+        mPanelSwap = new PanelSwap(new PanelSwap.Host() {
+            @Override
+            public void placePanel(int top) {
+                keepCoverViewOnScreenFrom(top, 0, -1, false);
+                keepContentViewOnScreenFrom(top);
+            }
+
+            @Override
+            public void showPanel(int panelHeight) {
+                KeyboardView.this.showPanel(panelHeight);
+            }
+
+            @Override
+            public void hideKeyboard() {
+                final View focus = findEditFocusView();
+                if (focus != null) {
+                    KeyboardUtil.hideKeyboard(focus);
+                }
+            }
+
+            @Override
+            public void showKeyboard() {
+                final View focus = findEditFocusView();
+                if (focus != null) {
+                    KeyboardUtil.showKeyboard(focus);
+                }
+            }
+
+            @Override
+            public void dismissPanel() {
+                mContentViewPopupWindow.dismiss();
+            }
+        });
+
         mContentViewPopupWindow = new PopupWindow();
-        mContentViewPopupWindow.setAnimationStyle(R.style.DialogAnimationSlide);
+        //面板的位移由 mTransitionAnimator 驱动，与 CoverView 同步
+        mContentViewPopupWindow.setAnimationStyle(0);
         mContentViewPopupWindow.setClippingEnabled(false);
         mContentViewPopupWindow.setWidth(WindowManager.LayoutParams.MATCH_PARENT);
         mContentViewPopupWindow.setHeight(WindowManager.LayoutParams.WRAP_CONTENT);
@@ -139,6 +380,9 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
         if (view == null) {
             if (child instanceof KeyboardCoverView) {
                 mCoverView = (KeyboardCoverView) child;
+                mCoverView.addOnLayoutChangeListener(mCoverLayoutChangeListener);
+            } else if (isPanel(child)) {
+                addPanel((KeyboardContentView) child, index);
             } else if (child instanceof KeyboardContentView) {
                 mContentView = (KeyboardContentView) child;
             }
@@ -149,13 +393,19 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
                     removeView(mCoverView);
                 }
                 mCoverView = (KeyboardCoverView) child;
+                mCoverView.addOnLayoutChangeListener(mCoverLayoutChangeListener);
                 view.addView(mCoverView);
                 mChildCount++;
+            } else if (isPanel(child)) {
+                addPanel((KeyboardContentView) child, index);
+                mContentViewPopupWindow.setContentView(getPopupContentView());
+                mContentViewPopupWindow.setWidth(AdjustResizeWithFullScreen.getUseRight());
             } else if (child instanceof KeyboardContentView) {
                 if (mContentView != null) {
                     removeView(mContentView);
                 }
                 mContentView = (KeyboardContentView) child;
+                applyPanelSnapshot();
                 mContentViewPopupWindow.setContentView(mContentView);
                 mContentViewPopupWindow.setWidth(AdjustResizeWithFullScreen.getUseRight());
             }
@@ -180,6 +430,50 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
             mOrientation = getResources().getConfiguration().orientation;
         }
         AdjustResizeWithFullScreen.assistRegisterActivity(mThemedContext.getCurrentActivity(), statusBarHeight, navigationBarHeight, this);
+        final View windowView = getRootView();
+        windowView.addOnLayoutChangeListener(mWindowLayoutChangeListener);
+        if (windowView.getWidth() > 0) {
+            updateWindowSize(windowView.getWidth(), windowView.getHeight());
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            setWindowInsetsAnimationCallback(new WindowInsetsAnimation.Callback(WindowInsetsAnimation.Callback.DISPATCH_MODE_CONTINUE_ON_SUBTREE) {
+                @Override
+                public void onPrepare(WindowInsetsAnimation animation) {
+                    if ((animation.getTypeMask() & WindowInsets.Type.ime()) != 0) {
+                        mImeAnimating = true;
+                    }
+                }
+
+                @Override
+                public void onEnd(WindowInsetsAnimation animation) {
+                    if ((animation.getTypeMask() & WindowInsets.Type.ime()) != 0) {
+                        mImeAnimating = false;
+                        dispatchKeyboardMove(getTargetKeyboardHeight());
+                        commitHeightMorphWhenSettled();
+                        settleLayoutCache();
+                    }
+                }
+
+                @Override
+                public WindowInsetsAnimation.Bounds onStart(WindowInsetsAnimation animation, WindowInsetsAnimation.Bounds bounds) {
+                    if ((animation.getTypeMask() & WindowInsets.Type.ime()) != 0) {
+                        //与输入法使用同样的时长和插值器
+                        mTransitionAnimator.setImeAnimationSpec(animation.getDurationMillis(), animation.getInterpolator());
+                    }
+                    return bounds;
+                }
+
+                @Override
+                public WindowInsets onProgress(WindowInsets insets, List<WindowInsetsAnimation> runningAnimations) {
+                    if (mImeAnimating) {
+                        final int imeBottom = insets.getInsets(WindowInsets.Type.ime()).bottom;
+                        final int navigationBottom = insets.getInsets(WindowInsets.Type.navigationBars()).bottom;
+                        dispatchKeyboardMove(KeyboardMoveCalculator.heightFromInsets(imeBottom, navigationBottom));
+                    }
+                    return insets;
+                }
+            });
+        }
         if (initWhenAttached) {
             initWhenAttached = false;
             final ViewGroup view = getReactRootView();
@@ -193,14 +487,223 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
                 view.addView(mCoverView);
                 mChildCount++;
             }
-            if (mContentView != null) {
-                mContentViewPopupWindow.setContentView(mContentView);
+            if (mContentView != null || mPanelContainer != null) {
+                applyPanelSnapshot();
+                mContentViewPopupWindow.setContentView(getPopupContentView());
                 mContentViewPopupWindow.setWidth(AdjustResizeWithFullScreen.getUseRight());
             }
         }
     }
 
 
+    private static boolean isPanel(View child) {
+        return child instanceof KeyboardContentView && ((KeyboardContentView) child).getPanelName() != null;
+    }
+
+    private View getPopupContentView() {
+        return mPanelContainer != null ? mPanelContainer : mContentView;
+    }
+
+    /**
+     * 面板加入后一直挂在 mPanelContainer 里，按当前面板尺寸布局，不显示时只是 INVISIBLE
+     */
+    private void addPanel(KeyboardContentView panel, int index) {
+        final KeyboardContentView old = mPanels.get(panel.getPanelName());
+        if (old != null && old != panel) {
+            removePanel(old);
+        }
+        if (mPanelContainer == null) {
+            mPanelContainer = new FrameLayout(getContext());
+        }
+        mPanels.put(panel.getPanelName(), panel);
+        mPanelList.add(Math.max(0, Math.min(index, mPanelList.size())), panel);
+        final boolean active = panel.getPanelName().equals(mActivePanelName);
+        panel.setVisibility(active ? VISIBLE : INVISIBLE);
+        mPanelContainer.addView(panel, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        if (active) {
+            if (mContentView != null && mContentView != panel) {
+                //待定的面板挂载完成，PopupWindow 一直保持显示，直接切换过去
+                switchToPanel(panel);
+            } else {
+                mContentView = panel;
+            }
+        }
+        if (mPreContentHeight > 0) {
+            //提前布局到当前面板尺寸，切换过来时不需要再布局
+            updateContentNodeSize(mPreContentWidth, mPreContentHeight);
+        }
+        trimPanels();
+    }
+
+    private void removePanel(KeyboardContentView panel) {
+        mPanelList.remove(panel);
+        mEvictedPanels.remove(panel);
+        if (mPanels.get(panel.getPanelName()) == panel) {
+            mPanels.remove(panel.getPanelName());
+        }
+        if (panel == mContentView) {
+            removeContentView();
+        } else if (mPanelContainer != null) {
+            mPanelContainer.removeView(panel);
+        }
+        if (mPanelList.isEmpty() && mPanelContainer != null) {
+            if (mContentViewPopupWindow.getContentView() == mPanelContainer) {
+                mContentViewPopupWindow.dismiss();
+                mContentViewPopupWindow.setContentView(null);
+            }
+            mPanelContainer = null;
+        }
+    }
+
+    /**
+     * 切换面板只改可见性，PopupWindow 保持显示，面板的尺寸已经布局好
+     */
+    public void setActivePanel(@Nullable String activePanel) {
+        mActivePanelName = activePanel;
+        if (mPanelContainer == null) {
+            return;
+        }
+        final KeyboardContentView panel = activePanel != null ? mPanels.get(activePanel) : null;
+        if (panel == mContentView) {
+            return;
+        }
+        if (panel == null) {
+            if (activePanel == null && mContentView != null) {
+                //不再指定面板，等同于移除面板
+                removeContentView();
+            }
+            //面板还没挂载：保留当前面板和 PopupWindow，等 addPanel 时再切换
+            return;
+        }
+        switchToPanel(panel);
+    }
+
+    private void switchToPanel(KeyboardContentView panel) {
+        if (mContentView != null) {
+            mContentView.setTranslationY(0);
+            mContentView.setVisibility(INVISIBLE);
+        }
+        mContentView = panel;
+        panel.setVisibility(VISIBLE);
+        //新面板接着当前的过渡和高度变化偏移
+        applyContentTranslation();
+        //重新用到的面板可以再次被淘汰
+        mEvictedPanels.remove(panel);
+        if (KeyboardViewManager.DEBUG) {
+            Log.e(TAG, "switchToPanel,panelName=" + panel.getPanelName());
+        }
+        if (mPreContentHeight > 0) {
+            //面板已经按这个尺寸布局过时会被去重，不会再次布局
+            updateContentNodeSize(mPreContentWidth, mPreContentHeight);
+        }
+    }
+
+    public void setMaxMountedPanels(int maxMountedPanels) {
+        mMaxMountedPanels = Math.max(1, maxMountedPanels);
+        trimPanels();
+    }
+
+    /**
+     * 超出上限时通知 JS 卸载最久没用的面板，当前面板不会被淘汰；
+     * 视图由 React 移除，这里不直接删除
+     */
+    private void trimPanels() {
+        int excess = mPanels.size() - mMaxMountedPanels;
+        if (excess <= 0) {
+            return;
+        }
+        final Iterator<KeyboardContentView> iterator = mPanels.values().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            final KeyboardContentView panel = iterator.next();
+            if (panel == mContentView) {
+                continue;
+            }
+            excess--;
+            if (!mEvictedPanels.add(panel)) {
+                //已经通知过，等待 React 移除
+                continue;
+            }
+            WritableMap map = Arguments.createMap();
+            map.putString("panelName", panel.getPanelName());
+            mEventEmitter.receiveEvent(getId(), Events.EVENT_PANEL_EVICTED.toString(), map);
+        }
+    }
+
+    public void setPanelSnapshotEnabled(boolean panelSnapshotEnabled) {
+        if (mPanelSnapshotEnabled && !panelSnapshotEnabled && mContentView != null) {
+            ContentSnapshotCache.get(getContext()).remove(getSnapshotName(mContentView.getPanelName()));
+            mContentView.setSnapshotName(null);
+        }
+        mPanelSnapshotEnabled = panelSnapshotEnabled;
+    }
+
+    /**
+     * 面板的 React 子树完成首次绘制之前，先显示上次同样尺寸的快照
+     */
+    private void applyPanelSnapshot() {
+        if (mPanelSnapshotEnabled && mContentView != null) {
+            mContentView.setSnapshotName(getSnapshotName(mContentView.getPanelName()));
+        }
+    }
+
+    /**
+     * 按面板名共享快照，KeyboardView 重新挂载后仍然可用；没有面板名时只属于这个 KeyboardView
+     */
+    private String getSnapshotName(@Nullable String panelName) {
+        return panelName != null ? "panel:" + panelName : "view:" + getId();
+    }
+
+    public void setKeyboardMoveEnabled(boolean keyboardMoveEnabled) {
+        mKeyboardMoveEnabled = keyboardMoveEnabled;
+        mLastMoveHeight = -1;
+        if (keyboardMoveEnabled) {
+            dispatchKeyboardMove(getTargetKeyboardHeight());
+        }
+    }
+
+    private int getTargetKeyboardHeight() {
+        return mKeyboardShown ? AdjustResizeWithFullScreen.getKeyboardHeight() : 0;
+    }
+
+    /**
+     * @param height 键盘当前露出的高度(px)，与上一次相同时不发送
+     */
+    private void dispatchKeyboardMove(int height) {
+        if (height == mLastMoveHeight || !mKeyboardMoveEnabled && !mWebViewGeometryBridge.isEnabled()) {
+            return;
+        }
+        mLastMoveHeight = height;
+        final int keyboardHeight = AdjustResizeWithFullScreen.getKeyboardHeight();
+        final float progress = KeyboardMoveCalculator.progress(height, keyboardHeight);
+        if (mKeyboardMoveEnabled) {
+            KeyboardMetrics.increment(KeyboardMetrics.Counter.EVENT_SENT);
+            mNativeModule.getEventDispatcher().dispatchEvent(
+                    new KeyboardMoveEvent(getId(), PixelUtil.toDIPFromPixel(height), progress));
+        }
+        mWebViewGeometryBridge.update(findCurrentFocus(), height, progress, mKeyboardShown, getShownPanelHeight());
+    }
+
+    /**
+     * 键盘在 WebView 里时，把几何信息直接推给页面里的 functionName 函数
+     */
+    public void setWebViewGeometryCallback(@Nullable String functionName) {
+        mWebViewGeometryBridge.setFunctionName(functionName);
+        mLastMoveHeight = -1;
+        dispatchKeyboardMove(getTargetKeyboardHeight());
+    }
+
+    private int getShownPanelHeight() {
+        return mContentView != null && mContentVisible && mContentViewPopupWindow.isShowing() ? mPreContentHeight : 0;
+    }
+
+    public void setPanelHeightMorph(boolean panelHeightMorph) {
+        mPanelHeightMorph = panelHeightMorph;
+        if (!panelHeightMorph) {
+            cancelHeightMorph();
+        }
+    }
+
     public void setHideWhenKeyboardIsDismissed(boolean hideWhenKeyboardIsDismissed) {
         mHideWhenKeyboardIsDismissed = hideWhenKeyboardIsDismissed;
     }
@@ -220,7 +723,7 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
                 } else {
                     keepCoverViewOnScreenFrom(useBottom - mKeyboardPlaceholderHeight, mKeyboardPlaceholderHeight);
                 }
-                receiveEvent(Events.EVENT_SHOW);
+                receiveEvent(Events.EVENT_SHOW, EventCause.PLACEHOLDER);
             }
         } else if (mCoverView != null && !mContentVisible && !mHideWhenKeyboardIsDismissed && keyboardPlaceholderHeight == 0) {
             keepCoverViewOnScreenFrom(AdjustResizeWithFullScreen.getUseBottom(), 0);
@@ -229,8 +732,18 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
     }
 
     public void setContentVisible(boolean contentVisible) {
+        if (contentVisible) {
+            markPanelRequest(KeyboardMetrics.Histogram.PANEL_PROP_TO_FRAME);
+        }
         mContentVisible = contentVisible;
+        if (!contentVisible) {
+            mPanelSwap.unpin();
+        }
         if (contentVisible) {
+            if (mContentView == null && mPanelContainer != null) {
+                //面板隐藏时只是不可见，恢复当前面板
+                setActivePanel(mActivePanelName);
+            }
             if (mCoverView == null) return;
             mCoverView.setVisibility(VISIBLE);
             keepCoverViewOnScreenFrom(mPreCoverHeight, mPreCoverBottom);
@@ -268,6 +781,124 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
         }
     }
 
+    /**
+     * 键盘切换到面板：CoverView 固定在当前键盘高度，先显示面板再收起键盘，避免中间的一次布局
+     *
+     * @param panelHeight 键盘高度未知时面板的高度
+     */
+    public void swapToPanel(int panelHeight) {
+        if (mCoverView == null || mContentView == null) {
+            return;
+        }
+        if (KeyboardViewManager.DEBUG) {
+            Log.e(TAG, "swapToPanel,panelHeight=" + panelHeight + ",mKeyboardShown=" + mKeyboardShown);
+        }
+        mContentVisible = true;
+        if (panelHeight > 0 && AdjustResizeWithFullScreen.getKeyboardHeight() == 0) {
+            mKeyboardPlaceholderHeight = (int) (panelHeight * mScale);
+        }
+        mCoverView.setVisibility(VISIBLE);
+        mPanelSwap.swapToPanel(mKeyboardShown, AdjustResizeWithFullScreen.getUseBottom(), panelHeight);
+    }
+
+    /**
+     * 直接显示面板，不经过 props 的 diff
+     *
+     * @param panelHeight 键盘高度未知时面板的高度
+     */
+    @Override
+    public void showPanel(int panelHeight) {
+        if (mCoverView == null || mContentView == null) {
+            return;
+        }
+        markPanelRequest(KeyboardMetrics.Histogram.PANEL_COMMAND_TO_FRAME);
+        mContentVisible = true;
+        if (panelHeight > 0 && AdjustResizeWithFullScreen.getKeyboardHeight() == 0) {
+            mKeyboardPlaceholderHeight = (int) (panelHeight * mScale);
+        }
+        mCoverView.setVisibility(VISIBLE);
+        if (mKeyboardShown) {
+            //键盘收起之后面板会顶上来
+            return;
+        }
+        keepPanelOnScreen();
+        receiveEvent(Events.EVENT_SHOW, EventCause.CONTENT);
+    }
+
+    /**
+     * 直接收起面板，不经过 props 的 diff
+     */
+    @Override
+    public void hidePanel() {
+        mPanelSwap.reset();
+        mContentVisible = false;
+        if (mContentViewPopupWindow.isShowing()) {
+            mContentViewPopupWindow.dismiss();
+        }
+        if (mCoverView == null || mKeyboardShown) {
+            return;
+        }
+        //面板已经收起，CoverView 回到屏幕底部
+        keepCoverViewOnScreenFrom(AdjustResizeWithFullScreen.getUseBottom(), 0);
+        if (mHideWhenKeyboardIsDismissed) {
+            mCoverView.setVisibility(GONE);
+        }
+        receiveEvent(Events.EVENT_HIDE, EventCause.CONTENT);
+    }
+
+    /**
+     * 直接修改面板高度，键盘高度已知时以键盘高度为准
+     */
+    @Override
+    public void setPanelHeight(int panelHeight) {
+        if (AdjustResizeWithFullScreen.getKeyboardHeight() == 0) {
+            mKeyboardPlaceholderHeight = (int) (panelHeight * mScale);
+        }
+        if (mCoverView != null && mContentVisible && !mKeyboardShown && mContentViewPopupWindow.isShowing()) {
+            keepPanelOnScreen();
+        }
+    }
+
+    private void keepPanelOnScreen() {
+        final int useBottom = AdjustResizeWithFullScreen.getUseBottom();
+        final int height = getContentViewHeight(useBottom);
+        keepCoverViewOnScreenFrom(useBottom - height, height);
+    }
+
+    /**
+     * 面板切换到键盘：面板保持在原位，键盘弹出后再收起
+     */
+    public void swapToKeyboard() {
+        final View focus = findEditFocusView();
+        if (KeyboardViewManager.DEBUG) {
+            Log.e(TAG, "swapToKeyboard,focus=" + focus + ",mKeyboardShown=" + mKeyboardShown);
+        }
+        if (focus == null) {
+            mPanelSwap.unpin();
+            return;
+        }
+        mContentVisible = false;
+        mPanelSwap.swapToKeyboard(mKeyboardShown, mContentViewPopupWindow.isShowing());
+    }
+
+    private @Nullable View findEditFocusView() {
+        if (mEditFocusView != null) {
+            return mEditFocusView;
+        }
+        if (mThemedContext.getCurrentActivity() == null) {
+            return null;
+        }
+        return mThemedContext.getCurrentActivity().getWindow().getDecorView().findFocus();
+    }
+
+    /**
+     * 当前窗口里的焦点，每次推送时重新获取：焦点可能已经从一个 WebView 移到另一个
+     */
+    private @Nullable View findCurrentFocus() {
+        final Activity activity = mThemedContext.getCurrentActivity();
+        return activity == null ? null : activity.getWindow().getDecorView().findFocus();
+    }
+
 
     @Override
     public void onKeyboardOpened() {
@@ -281,18 +912,22 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
         }
         if (mKeyboardShown) return;
         mKeyboardShown = true;
-        if (mEditFocusView == null) {
-            View view = mThemedContext.getCurrentActivity().getWindow().getDecorView().findFocus();
-            if (view instanceof EditText || view instanceof WebView) {
-                mEditFocusView = view;
-            }
+        markDetection();
+        if (mCoverView == null) {
+            dispatchKeyboardMove(getTargetKeyboardHeight());
+        }
+        //每次打开都重新记录，焦点可能已经换到另一个输入框
+        final View focus = findCurrentFocus();
+        if (focus instanceof EditText || focus instanceof WebView) {
+            mEditFocusView = focus;
         }
+        mPanelSwap.onKeyboardOpened();
         if (mContentView != null && mContentView.isShown()) {
-            receiveEvent(Events.EVENT_HIDE);
+            receiveEvent(Events.EVENT_HIDE, EventCause.IME);
         }
         if (mCoverView != null) {
             mCoverView.setVisibility(VISIBLE);
-            receiveEvent(Events.EVENT_SHOW);
+            receiveEvent(Events.EVENT_SHOW, EventCause.IME);
         }
     }
 
@@ -307,16 +942,25 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
             );
         }
         if (!mKeyboardShown) return;
+        markDetection();
         mKeyboardShown = false;
+        if (mCoverView == null) {
+            dispatchKeyboardMove(0);
+        }
+        if (mPanelSwap.onKeyboardClosed() && mContentView != null && mCoverView != null) {
+            //面板已经占住键盘的位置，无需再次布局
+            mCoverView.setVisibility(VISIBLE);
+            return;
+        }
         if (mContentView != null) {
             if (mContentVisible) {
             } else {
                 if (mKeyboardPlaceholderHeight == 0) {
-                    receiveEvent(Events.EVENT_HIDE);
+                    receiveEvent(Events.EVENT_HIDE, EventCause.IME);
                 }
             }
         } else {
-            receiveEvent(Events.EVENT_HIDE);
+            receiveEvent(Events.EVENT_HIDE, EventCause.IME);
         }
         if (mCoverView != null) {
             if (mEditFocusView != null && mEditFocusView.isFocused()) {
@@ -344,12 +988,40 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
         }
     }
 
+    /**
+     * @return 屏幕的刷新率(Hz)，取不到时返回 0
+     */
+    private float getRefreshRate() {
+        final WindowManager wm = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+        return wm != null ? wm.getDefaultDisplay().getRefreshRate() : 0;
+    }
+
     @Override
     public boolean onKeyboardResize(int heightOfLayout, int bottom) {
+        final FrameBudgetMonitor monitor = FrameBudgetMonitor.getInstance();
+        monitor.sample(getRefreshRate());
+        if (monitor.isReduced()) {
+            //帧耗时过长，同一帧内只应用最后一次
+            mPendingHeightOfLayout = heightOfLayout;
+            mPendingBottom = bottom;
+            if (!mResizePending) {
+                mResizePending = true;
+                Choreographer.getInstance().postFrameCallback(mApplyResizeCallback);
+            }
+            return true;
+        }
+        return applyKeyboardResize(heightOfLayout, bottom);
+    }
+
+    private boolean applyKeyboardResize(int heightOfLayout, int bottom) {
         if (KeyboardViewManager.DEBUG) {
             Log.e(TAG, "onKeyboardResize,heightOfLayout=" + heightOfLayout);
             Log.e(TAG, "onKeyboardResize,mCoverView.isShown()=" + mCoverView.isShown());
         }
+        if (mPanelSwap.onKeyboardResize(mKeyboardShown)) {
+            //面板固定在键盘原来的位置，输入法收起引起的布局变化不再移动 CoverView
+            return true;
+        }
         if (mCoverView != null && AdjustResizeWithFullScreen.isInit()) {
             if (mCoverView.isShown()) {
                 int diff = AdjustResizeWithFullScreen.getWindowBottom() - heightOfLayout;
@@ -388,17 +1060,66 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
 
     @Override
     public void onHostResume() {
-
+        mHostResumed = true;
+        if (getWindowVisibility() == VISIBLE) {
+            AdjustResizeWithFullScreen.resume(this);
+        }
     }
 
     @Override
     public void onHostPause() {
+        mHostResumed = false;
+        suspendDetection();
+    }
+
+    /**
+     * 页面不在前台时不再跟随键盘，恢复时由 AdjustResizeWithFullScreen.resume 一次性同步
+     */
+    private void suspendDetection() {
+        AdjustResizeWithFullScreen.suspend(this);
+        if (mResizePending) {
+            mResizePending = false;
+            Choreographer.getInstance().removeFrameCallback(mApplyResizeCallback);
+        }
+        mTransitionAnimator.cancel();
+    }
 
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        if (mOrientation == -1 || newConfig.orientation == mOrientation) {
+            return;
+        }
+        //键盘打开时，新方向上的键盘高度要等输入法布局之后才知道，只比较开关状态
+        final OrientationLayoutCache.Entry entry = mLayoutCache.get(newConfig.orientation, mKeyboardShown,
+                mKeyboardShown ? -1 : mKeyboardPlaceholderHeight);
+        if (entry == null || mCoverView == null || !mCoverView.isShown()) {
+            return;
+        }
+        if (KeyboardViewManager.DEBUG) {
+            Log.e(TAG, "onConfigurationChanged,restore orientation=" + newConfig.orientation
+                    + ",coverHeight=" + entry.coverHeight + ",contentTop=" + entry.contentTop);
+        }
+        //直接恢复到该方向上次的位置，之后测量结果不同时再修正
+        mOrientation = newConfig.orientation;
+        isOrientationChange = false;
+        mTransitionAnimator.cancel();
+        if (entry.hasCover()) {
+            keepCoverViewOnScreenFrom(entry.coverHeight, entry.coverBottom, entry.coverWidth);
+        }
+        if (entry.hasContent() && mContentVisible && mContentViewPopupWindow.isShowing()) {
+            keepContentViewOnScreenFrom(entry.contentTop, entry.contentHeight, entry.contentWidth);
+        }
     }
 
     @Override
     protected void onWindowVisibilityChanged(int visibility) {
         super.onWindowVisibilityChanged(visibility);
+        if (visibility != VISIBLE) {
+            suspendDetection();
+        } else if (mHostResumed) {
+            AdjustResizeWithFullScreen.resume(this);
+        }
         if (mVisibility != visibility) {
             if (KeyboardViewManager.DEBUG) {
                 Log.e(TAG, "onWindowVisibilityChanged,mVisibility=" + mVisibility + ",visibility=" + visibility
@@ -455,7 +1176,12 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
-        receiveEvent(Events.EVENT_HIDE);
+        getRootView().removeOnLayoutChangeListener(mWindowLayoutChangeListener);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            setWindowInsetsAnimationCallback(null);
+            mImeAnimating = false;
+        }
+        receiveEvent(Events.EVENT_HIDE, EventCause.CONTENT);
         onDropInstance();
     }
 
@@ -473,19 +1199,31 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
         if (mContentView != null) {
             removeView(mContentView);
         }
+        while (!mPanelList.isEmpty()) {
+            removePanel(mPanelList.get(mPanelList.size() - 1));
+        }
         AdjustResizeWithFullScreen.assistUnRegister();
 //        mContentView = null;
 //        mCoverView = null;
         mEditFocusView = null;
+        mWebViewGeometryBridge.cancel();
 //        mContentViewPopupWindow.dismiss();
         mContentViewPopupWindow.setContentView(null);
         mVisibility = -1;
         mKeyboardShown = mKeyboardShownStatus = false;
+        mPanelSwap.reset();
         mOrientation = -1;
         mContentVisible = false;
         mKeyboardPlaceholderHeight = 0;
-        if (translationSlide != null) {
-            translationSlide = null;
+        mTransitionAnimator.cancel();
+        mLayoutCache.clear();
+        if (mPanelSnapshotEnabled) {
+            //没有开启时不创建缓存；带面板名的快照留给下次挂载
+            ContentSnapshotCache.get(getContext()).remove(getSnapshotName(null));
+        }
+        if (mResizePending) {
+            mResizePending = false;
+            Choreographer.getInstance().removeFrameCallback(mApplyResizeCallback);
         }
     }
 
@@ -499,6 +1237,8 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
             }
             if (child.equals(mCoverView)) {
                 removeCoverView(child, (ViewGroup) viewParent);
+            } else if (mPanelList.contains(child)) {
+                removePanel((KeyboardContentView) child);
             } else {
                 removeContentView();
             }
@@ -507,29 +1247,41 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
     }
 
     private void removeCoverView(View child, ViewGroup viewParent) {
+        child.removeOnLayoutChangeListener(mCoverLayoutChangeListener);
         mCoverView = null;
         viewParent.removeView(child);
         mChildCount--;
         if (!mContentVisible) {
-            receiveEvent(Events.EVENT_HIDE);
+            receiveEvent(Events.EVENT_HIDE, EventCause.CONTENT);
         }
         mPreCoverBottom = mPreCoverHeight = mPreCoverWidth = 0;
+        mTargetCoverHeight = mTargetCoverWidth = 0;
     }
 
     private void removeContentView() {
+        if (mPanelSnapshotEnabled && mContentView != null && mContentViewPopupWindow.isShowing()) {
+            ContentSnapshotCache.get(getContext()).capture(getSnapshotName(mContentView.getPanelName()), mContentView);
+        }
+        cancelHeightMorph();
         mContentViewPopupWindow.dismiss();
         ViewGroup parent = (ViewGroup) mContentView.getParent();
-        if (parent != null) {
+        if (mPanelList.contains(mContentView)) {
+            //面板仍然挂载，只隐藏，再次显示时不需要重新布局
+            mContentView.setVisibility(INVISIBLE);
+        } else if (parent != null) {
             parent.removeView(mContentView);
         }
         mContentView = null;
-        receiveEvent(Events.EVENT_HIDE);
+        mPanelSwap.unpin();
+        receiveEvent(Events.EVENT_HIDE, EventCause.CONTENT);
         mPreContentWidth = mPreContentHeight = mPreContentTop = 0;
     }
 
     @Override
     public void removeViewAt(int index) {
-        if (index == 0 && mContentView != null) {
+        if (!mPanelList.isEmpty()) {
+            removeView(getChildAt(index));
+        } else if (index == 0 && mContentView != null) {
             removeView(mContentView);
         } else {
             removeView(mCoverView);
@@ -538,43 +1290,153 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
 
     @Override
     public int getChildCount() {
-        return mChildCount;
+        return mChildCount + mPanelList.size();
     }
 
     @Override
     public View getChildAt(int index) {
-        if (index == 0 && mContentView != null) {
+        if (!mPanelList.isEmpty()) {
+            //面板排在 CoverView 之前
+            return index < mPanelList.size() ? mPanelList.get(index) : mCoverView;
+        } else if (index == 0 && mContentView != null) {
             return mContentView;
         } else {
             return mCoverView;
         }
     }
 
-    private void receiveEvent(Events event) {
-        WritableMap map = Arguments.createMap();
-        map.putBoolean("keyboardShown", mKeyboardShown);
-        mEventEmitter.receiveEvent(getId(), event.toString(), map);
+    /**
+     * 事件里带上键盘高度、CoverView 和面板的位置、可绘区域等信息，JS 无需再 measure；
+     * 内容在调用时取快照，在 native modules 线程发送，排在已经提交的布局之后，sequence 单调递增，可用于丢弃过期的事件
+     */
+    private void receiveEvent(final Events event, final EventCause cause) {
+        if (mWebViewGeometryBridge.isEnabled() && !mTransitionAnimator.isRunning() && !mImeAnimating) {
+            //面板显示、隐藏同样通知页面
+            mWebViewGeometryBridge.update(findCurrentFocus(), getTargetKeyboardHeight(),
+                    mKeyboardShown ? 1f : 0f, mKeyboardShown, getShownPanelHeight());
+        }
+        final int viewId = getId();
+        final boolean keyboardShown = mKeyboardShown;
+        final int sequence = mEventSequence.incrementAndGet();
+        final long timestamp = SystemClock.uptimeMillis();
+        final int keyboardHeight = AdjustResizeWithFullScreen.getKeyboardHeight();
+        final boolean fullscreen = AdjustResizeWithFullScreen.isFullscreen();
+        final Rect visibleFrame = AdjustResizeWithFullScreen.getVisibleViewArea();
+        //在调用线程上取快照，避免 native modules 线程上读到之后的布局
+        final boolean hasCover = mCoverView != null;
+        final int[] coverOrigin = new int[2];
+        final ViewGroup rootView = getReactRootView();
+        if (rootView != null) {
+            //CoverView 绝对定位在 ReactRootView 顶部，与 visibleFrame、panelFrame 同为屏幕坐标
+            rootView.getLocationOnScreen(coverOrigin);
+        }
+        final int coverWidth = mTargetCoverWidth;
+        final int coverHeight = mTargetCoverHeight;
+        final boolean hasPanel = mContentView != null && mContentVisible && mPreContentHeight > 0;
+        final int panelLeft = AdjustResizeWithFullScreen.getUseLeft();
+        final int panelTop = mPreContentTop;
+        final int panelWidth = mPreContentWidth;
+        final int panelHeight = mPreContentHeight;
+        ((ReactContext) getContext()).runOnNativeModulesQueueThread(new Runnable() {
+            @Override
+            public void run() {
+                WritableMap map = Arguments.createMap();
+                map.putBoolean("keyboardShown", keyboardShown);
+                map.putString("cause", cause.toString());
+                map.putInt("sequence", sequence);
+                map.putDouble("timestamp", timestamp);
+                map.putDouble("keyboardHeight", PixelUtil.toDIPFromPixel(keyboardHeight));
+                map.putBoolean("fullscreen", fullscreen);
+                map.putMap("visibleFrame", createFrame(visibleFrame.left, visibleFrame.top,
+                        visibleFrame.width(), visibleFrame.height()));
+                if (hasCover) {
+                    map.putMap("coverFrame", createFrame(coverOrigin[0], coverOrigin[1], coverWidth, coverHeight));
+                } else {
+                    map.putNull("coverFrame");
+                }
+                if (hasPanel) {
+                    map.putMap("panelFrame", createFrame(panelLeft, panelTop, panelWidth, panelHeight));
+                } else {
+                    map.putNull("panelFrame");
+                }
+                KeyboardMetrics.increment(KeyboardMetrics.Counter.EVENT_SENT);
+                mEventEmitter.receiveEvent(viewId, event.toString(), map);
+            }
+        });
+    }
+
+    private static WritableMap createFrame(int x, int y, int width, int height) {
+        WritableMap frame = Arguments.createMap();
+        frame.putDouble("x", PixelUtil.toDIPFromPixel(x));
+        frame.putDouble("y", PixelUtil.toDIPFromPixel(y));
+        frame.putDouble("width", PixelUtil.toDIPFromPixel(width));
+        frame.putDouble("height", PixelUtil.toDIPFromPixel(height));
+        return frame;
     }
 
     //防止多次重绘界面
     private int mPreCoverHeight = 0;
     private int mPreCoverBottom = 0;
     private int mPreCoverWidth = 0;
+    /**
+     * 最近一次请求的 CoverView 尺寸，在 UI 线程上同步记录；
+     * mPreCover* 要等布局任务执行后才更新，发送事件时可能还是上一次的值
+     */
+    private int mTargetCoverHeight = 0;
+    private int mTargetCoverWidth = 0;
 
     /**
      * 确定CoverView的位置，以及随着coverView变化而变化的contentView的位置
      */
     private void keepCoverViewOnScreenFrom(final int height, final int bottom) {
+        keepCoverViewOnScreenFrom(height, bottom, -1);
+    }
+
+    /**
+     * @param width 小于0时使用 ReactRootView 的宽度
+     */
+    private void keepCoverViewOnScreenFrom(final int height, final int bottom, final int width) {
+        keepCoverViewOnScreenFrom(height, bottom, width, true);
+    }
+
+    /**
+     * @param placeContent 布局之后是否跟着放置面板，调用方已经放好面板时传 false，避免同一次切换里放置两次
+     */
+    private void keepCoverViewOnScreenFrom(final int height, final int bottom, final int width, final boolean placeContent) {
         if (mCoverView != null) {
-            ((ReactContext) getContext()).runOnNativeModulesQueueThread(
-                    new Runnable() {
+            final ViewGroup rootView = getReactRootView();
+            if (rootView != null) {
+                final int targetWidth = width > -1 ? width : rootView.getWidth();
+                mLayoutCache.putCover(getResources().getConfiguration().orientation, height, bottom, targetWidth);
+                settleLayoutCache();
+                mTargetCoverWidth = targetWidth;
+            }
+            if (height > -1) {
+                mTargetCoverHeight = height;
+            }
+            mLayoutLane.post(KeyboardLayoutLane.KEY_COVER,
+                    new KeyboardLayoutLane.Task() {
                         @Override
-                        public void run() {
-                            final int useRight = getReactRootView().getWidth();//AdjustResizeWithFullScreen.getUseRight();
+                        public boolean run() {
+                            final int useRight = width > -1 ? width : getReactRootView().getWidth();//AdjustResizeWithFullScreen.getUseRight();
                             //maybe its null in this thread
                             if (!isOrientationChange && mPreCoverBottom == bottom && mPreCoverHeight == height && mPreCoverWidth == useRight || mCoverView == null) {
+                                KeyboardMetrics.increment(KeyboardMetrics.Counter.DUPLICATE_SKIPPED);
                                 postContentView();
-                                return;
+                                return true;
+                            }
+                            if (mCoverView.getLayoutState().update(useRight, height, bottom)) {
+                                //新架构，通过组件 state 更新布局
+                                mPreCoverBottom = bottom;
+                                mPreCoverHeight = height;
+                                mPreCoverWidth = useRight;
+                                postContentView();
+                                return true;
+                            }
+                            final ReactShadowNode coverShadowNode = mNativeModule.getUIImplementation().resolveShadowNode(mCoverView.getId());
+                            if (coverShadowNode == null) {
+                                //创建节点的批次还排在后面
+                                return false;
                             }
                             if (KeyboardViewManager.DEBUG) {
                                 Log.e(TAG, "keepCoverViewOnScreenFrom,height" + height + ",bottom=" + bottom + ",useRight=" + useRight);
@@ -583,7 +1445,6 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
                             mPreCoverHeight = height;
                             mPreCoverWidth = useRight;
                             try {
-                                ReactShadowNode coverShadowNode = mNativeModule.getUIImplementation().resolveShadowNode(mCoverView.getId());
                                 if (bottom >= 0) {
                                     coverShadowNode.setPosition(YogaEdge.BOTTOM.intValue(), bottom);
                                 }
@@ -591,16 +1452,21 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
                                 coverShadowNode.setPositionType(YogaPositionType.ABSOLUTE);
                                 if (height > -1) {
                                     coverShadowNode.setStyleHeight(height);
-                                    mNativeModule.updateNodeSize(mCoverView.getId(), useRight, height);
+                                    updateNodeSize(mNativeModule, mCoverView.getId(), useRight, height);
                                 }
+                                KeyboardMetrics.increment(KeyboardMetrics.Counter.HOST_LAYOUT);
                                 mNativeModule.getUIImplementation().dispatchViewUpdates(-1);//这句话相当于全局更新
                                 postContentView();
                             } catch (Exception e) {
                                 e.printStackTrace();
                             }
+                            return true;
                         }
 
                         private void postContentView() {
+                            if (!placeContent) {
+                                return;
+                            }
                             post(new Runnable() {
                                 @Override
                                 public void run() {
@@ -622,16 +1488,6 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
                             });
                         }
                     });
-            if (mPreCoverBottom == bottom && mPreCoverHeight == height) {
-                return;
-            }
-            if (translationSlide != null) {
-                if (translationSlide.isRunning() || translationSlide.isStarted()) {
-                    translationSlide.cancel();
-                }
-            }
-            translationSlide = ObjectAnimator.ofFloat(mCoverView, "alpha", 0, 1);
-            translationSlide.start();
         }
     }
 
@@ -646,45 +1502,61 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
      * @param top
      */
     private void keepContentViewOnScreenFrom(int top) {
+        keepContentViewOnScreenFrom(top, -1, -1);
+    }
+
+    /**
+     * @param height 小于0时根据键盘高度计算
+     * @param width  小于0时使用 ReactRootView 的宽度
+     */
+    private void keepContentViewOnScreenFrom(int top, int height, int width) {
         if (mContentView != null) {
             if (mContentViewPopupWindow.getContentView() == null) {
-                mContentViewPopupWindow.setContentView(mContentView);
+                mContentViewPopupWindow.setContentView(getPopupContentView());
                 mContentViewPopupWindow.setWidth(AdjustResizeWithFullScreen.getUseRight());
             }
-            if (mKeyboardShown) {
+            if (mKeyboardShown && height < 0) {
                 if (top != AdjustResizeWithFullScreen.getUseBottom()) {
                     top = AdjustResizeWithFullScreen.getUseBottom();
                 }
             }
-            final int tempHeight = getContentViewHeight(top);
-            final int useRight = getReactRootView().getWidth();//AdjustResizeWithFullScreen.getUseRight();
+            final int tempHeight = height > -1 ? height : getContentViewHeight(top);
+            final int useRight = width > -1 ? width : getReactRootView().getWidth();//AdjustResizeWithFullScreen.getUseRight();
             if (KeyboardViewManager.DEBUG) {
                 Log.e(TAG, "keepContentViewOnScreenFrom,height" + tempHeight + ",top=" + top + ",useRight=" + useRight);
             }
-            ((ReactContext) getContext()).runOnNativeModulesQueueThread(
-                    new Runnable() {
-                        @Override
-                        public void run() {
-                            if (mContentView != null) {
-                                //maybe its null in this thread
-                                mNativeModule.updateNodeSize(mContentView.getId(), useRight, tempHeight);
-                            }
-                        }
-                    });
+            final boolean morph = mPanelHeightMorph && mContentViewPopupWindow.isShowing() && !isOrientationChange
+                    && mPreContentHeight != 0 && mPreContentHeight != tempHeight && mPreContentWidth == useRight;
+            if (morph) {
+                //只移动面板的上边缘，高度稳定后再统一布局
+                beginHeightMorph();
+            } else {
+                updateContentNodeSize(useRight, tempHeight);
+            }
             if (mContentViewPopupWindow.isShowing()) {
                 boolean isOrientChanged = isOrientationChange;
                 if (!isOrientChanged) {
-                    isOrientChanged = mOrientation == getResources().getConfiguration().orientation;
+                    isOrientChanged = mOrientation != getResources().getConfiguration().orientation;
                 }
 
                 if (!isOrientChanged && mPreContentHeight == tempHeight && mPreContentTop == top && mPreContentWidth == useRight) {
+                    KeyboardMetrics.increment(KeyboardMetrics.Counter.DUPLICATE_SKIPPED);
                     return;
                 }
                 if (isOrientChanged) {
                     isOrientationChange = false;
                     mOrientation = getResources().getConfiguration().orientation;
+                } else if (mPreContentTop != 0 && mPreContentWidth == useRight) {
+                    animateTransition(KeyboardTransitionAnimator.CHANNEL_CONTENT, mPreContentTop - top);
+                }
+                if (morph && top >= mPopupTop) {
+                    //面板变矮：窗口不动，面板向下平移，底部超出窗口的部分被裁掉
+                    setMorphOffset(top - mPopupTop);
+                } else {
+                    //面板变高时窗口必须覆盖新的区域，只在这种情况下调整窗口
+                    setMorphOffset(0);
+                    updatePopupWindow(top, useRight, tempHeight);
                 }
-                mContentViewPopupWindow.update(AdjustResizeWithFullScreen.getUseLeft(), top, useRight, tempHeight);
             } else {
                 if (mContentViewPopupWindow.getHeight() != tempHeight) {
                     mContentViewPopupWindow.setHeight(tempHeight);
@@ -695,7 +1567,16 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
                 try {
                     final View decorView = AdjustResizeWithFullScreen.getDecorView();
                     if(decorView!=null) {
+                        KeyboardMetrics.increment(KeyboardMetrics.Counter.POPUP_UPDATE);
                         mContentViewPopupWindow.showAtLocation(decorView, Gravity.NO_GRAVITY, AdjustResizeWithFullScreen.getUseLeft(), top);
+                        mPopupTop = top;
+                        mPopupHeight = tempHeight;
+                        setMorphOffset(0);
+                        postFirstFrame();
+                        if (!mKeyboardShown && !mPanelSwap.isPinned()) {
+                            //从屏幕底部滑入
+                            animateTransition(KeyboardTransitionAnimator.CHANNEL_CONTENT, tempHeight);
+                        }
                     }
                 } catch (Exception e) {
                     //mybe its non in asynchronization
@@ -705,6 +1586,186 @@ public class KeyboardView extends ReactRootAwareViewGroup implements LifecycleEv
             mPreContentHeight = tempHeight;
             mPreContentTop = top;
             mPreContentWidth = useRight;
+            mLayoutCache.putContent(getResources().getConfiguration().orientation, top, tempHeight, useRight);
+            settleLayoutCache();
+        }
+    }
+
+    /**
+     * 没有过渡动画、面板高度也不在变化时，把记录的布局写入方向缓存，中间过程不缓存
+     */
+    private void settleLayoutCache() {
+        if (mTransitionAnimator.isRunning() || mImeAnimating || mHeightMorphing) {
+            return;
+        }
+        mLayoutCache.settle(getResources().getConfiguration().orientation, mKeyboardShown,
+                mKeyboardShown ? AdjustResizeWithFullScreen.getKeyboardHeight() : mKeyboardPlaceholderHeight);
+    }
+
+    private void updateContentNodeSize(final int width, final int height) {
+        //多面板时所有面板一起布局，切换时不需要再布局
+        final KeyboardContentView[] contentViews = mPanelList.isEmpty()
+                ? new KeyboardContentView[]{mContentView}
+                : mPanelList.toArray(new KeyboardContentView[mPanelList.size()]);
+        mLayoutLane.post(KeyboardLayoutLane.KEY_CONTENT,
+                new KeyboardLayoutLane.Task() {
+                    @Override
+                    public boolean run() {
+                        boolean applied = true;
+                        for (KeyboardContentView contentView : contentViews) {
+                            applied &= updateContentNodeSize(contentView, width, height);
+                        }
+                        return applied;
+                    }
+                });
+    }
+
+    /**
+     * 需在 native modules 线程调用
+     *
+     * @return 面板的 shadow node 还不存在时返回 false
+     */
+    private boolean updateContentNodeSize(@Nullable KeyboardContentView contentView, int width, int height) {
+        //maybe its null in this thread
+        if (contentView == null || contentView.getLayoutState().update(width, height, -1)) {
+            return true;
+        }
+        ReactShadowNode contentShadowNode = mNativeModule.getUIImplementation().resolveShadowNode(contentView.getId());
+        if (contentShadowNode == null) {
+            return false;
+        }
+        PanelSizeSync.apply(contentShadowNode instanceof KeyboardContentShadowNode
+                        ? ((KeyboardContentShadowNode) contentShadowNode).getPanelSize() : null,
+                contentView.getId(), width, height, nodeSizeUpdater(mNativeModule));
+        return true;
+    }
+
+    /**
+     * updateNodeSize 并不只布局这个节点：没有待执行的 UI 操作时它会直接 dispatchViewUpdates，
+     * 即一次全局布局，所以同样记为 HOST_LAYOUT。需在 native modules 线程调用
+     */
+    static void updateNodeSize(UIManagerModule uiManager, int viewTag, int width, int height) {
+        KeyboardMetrics.increment(KeyboardMetrics.Counter.HOST_LAYOUT);
+        uiManager.updateNodeSize(viewTag, width, height);
+    }
+
+    /**
+     * 面板走 PanelSizeSync.apply，由它计数 HOST_LAYOUT
+     */
+    static PanelSizeSync.NodeSizeUpdater nodeSizeUpdater(final UIManagerModule uiManager) {
+        return new PanelSizeSync.NodeSizeUpdater() {
+            @Override
+            public void updateNodeSize(int viewTag, int width, int height) {
+                uiManager.updateNodeSize(viewTag, width, height);
+            }
+        };
+    }
+
+    private void markDetection() {
+        KeyboardMetrics.increment(KeyboardMetrics.Counter.TRANSITION);
+        if (KeyboardMetrics.isEnabled()) {
+            mDetectionTime = SystemClock.uptimeMillis();
+        }
+    }
+
+    /**
+     * 面板还没有显示时记录请求的时间，命令和 prop 两条路径分别统计
+     */
+    private void markPanelRequest(KeyboardMetrics.Histogram histogram) {
+        if (KeyboardMetrics.isEnabled() && !mContentViewPopupWindow.isShowing()) {
+            mPanelRequestTime = SystemClock.uptimeMillis();
+            mPanelRequestHistogram = histogram;
+        }
+    }
+
+    /**
+     * 新布局已经落地，下一帧即为检测后的第一帧
+     */
+    private void postFirstFrame() {
+        if (mDetectionTime >= 0 || mPanelRequestTime >= 0) {
+            Choreographer.getInstance().removeFrameCallback(mFirstFrameCallback);
+            Choreographer.getInstance().postFrameCallback(mFirstFrameCallback);
+        }
+    }
+
+    private void updateWindowSize(final int width, final int height) {
+        mLayoutLane.post(KeyboardLayoutLane.KEY_WINDOW,
+                new KeyboardLayoutLane.Task() {
+                    @Override
+                    public boolean run() {
+                        ReactShadowNode shadowNode = mNativeModule.getUIImplementation().resolveShadowNode(getId());
+                        if (shadowNode == null) {
+                            return false;
+                        }
+                        if (shadowNode instanceof KeyboardViewShadowView
+                                && ((KeyboardViewShadowView) shadowNode).setWindowSize(width, height)) {
+                            KeyboardMetrics.increment(KeyboardMetrics.Counter.HOST_LAYOUT);
+                            mNativeModule.getUIImplementation().dispatchViewUpdates(-1);
+                        }
+                        return true;
+                    }
+                });
+    }
+
+    private void updatePopupWindow(int top, int width, int height) {
+        KeyboardMetrics.increment(KeyboardMetrics.Counter.POPUP_UPDATE);
+        mContentViewPopupWindow.update(AdjustResizeWithFullScreen.getUseLeft(), top, width, height);
+        mPopupTop = top;
+        mPopupHeight = height;
+        postFirstFrame();
+    }
+
+    private void setMorphOffset(int morphOffset) {
+        if (mMorphOffset != morphOffset) {
+            mMorphOffset = morphOffset;
+            applyContentTranslation();
+        }
+    }
+
+    private void applyContentTranslation() {
+        if (mContentView != null) {
+            mContentView.setTranslationY(mContentTransitionOffset + mMorphOffset);
+        }
+    }
+
+    private void beginHeightMorph() {
+        mHeightMorphing = true;
+        if (mContentView != null) {
+            mContentView.setSizeUpdatesSuspended(true);
+        }
+        commitHeightMorphWhenSettled();
+    }
+
+    /**
+     * 没有动画时下一帧提交，否则等过渡动画或输入法动画结束
+     */
+    private void commitHeightMorphWhenSettled() {
+        if (!mHeightMorphing) {
+            return;
+        }
+        removeCallbacks(mCommitHeightMorph);
+        if (!mTransitionAnimator.isRunning() && !mImeAnimating) {
+            postOnAnimation(mCommitHeightMorph);
+        }
+    }
+
+    private void cancelHeightMorph() {
+        mHeightMorphing = false;
+        removeCallbacks(mCommitHeightMorph);
+        setMorphOffset(0);
+        if (mContentView != null) {
+            mContentView.setSizeUpdatesSuspended(false);
+        }
+    }
+
+    /**
+     * 帧耗时过长时不播放过渡，直接到位
+     */
+    private void animateTransition(int channel, float delta) {
+        if (FrameBudgetMonitor.getInstance().isReduced()) {
+            mTransitionAnimator.cancel();
+        } else {
+            mTransitionAnimator.animateBy(channel, delta);
         }
     }
 
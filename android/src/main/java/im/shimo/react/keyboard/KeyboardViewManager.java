@@ -4,6 +4,9 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.common.MapBuilder;
 import com.facebook.react.module.annotations.ReactModule;
 import com.facebook.react.uimanager.LayoutShadowNode;
@@ -45,6 +48,11 @@ public class KeyboardViewManager extends ViewGroupManager<KeyboardView> {
         return new KeyboardViewShadowView();
     }
 
+    @Override
+    public Class<? extends LayoutShadowNode> getShadowNodeClass() {
+        return KeyboardViewShadowView.class;
+    }
+
     @Override
     public void onDropViewInstance(KeyboardView view) {
         super.onDropViewInstance(view);
@@ -68,6 +76,36 @@ public class KeyboardViewManager extends ViewGroupManager<KeyboardView> {
         }
     }
 
+    @ReactProp(name = "panelSnapshotEnabled")
+    public void setPanelSnapshotEnabled(KeyboardView view, boolean panelSnapshotEnabled) {
+        view.setPanelSnapshotEnabled(panelSnapshotEnabled);
+    }
+
+    @ReactProp(name = "keyboardMoveEnabled")
+    public void setKeyboardMoveEnabled(KeyboardView view, boolean keyboardMoveEnabled) {
+        view.setKeyboardMoveEnabled(keyboardMoveEnabled);
+    }
+
+    @ReactProp(name = "webViewGeometryCallback")
+    public void setWebViewGeometryCallback(KeyboardView view, @Nullable String webViewGeometryCallback) {
+        view.setWebViewGeometryCallback(webViewGeometryCallback);
+    }
+
+    @ReactProp(name = "activePanel")
+    public void setActivePanel(KeyboardView view, @Nullable String activePanel) {
+        view.setActivePanel(activePanel);
+    }
+
+    @ReactProp(name = "maxMountedPanels", defaultInt = KeyboardView.DEFAULT_MAX_MOUNTED_PANELS)
+    public void setMaxMountedPanels(KeyboardView view, int maxMountedPanels) {
+        view.setMaxMountedPanels(maxMountedPanels);
+    }
+
+    @ReactProp(name = "panelHeightMorph")
+    public void setPanelHeightMorph(KeyboardView view, boolean panelHeightMorph) {
+        view.setPanelHeightMorph(panelHeightMorph);
+    }
+
     @ReactProp(name = "keyboardPlaceholderHeight")
     public void setKeyboardPlaceholderHeight(KeyboardView view, int keyboardPlaceholderHeight) {
         view.setKeyboardPlaceholderHeight(keyboardPlaceholderHeight);
@@ -76,6 +114,22 @@ public class KeyboardViewManager extends ViewGroupManager<KeyboardView> {
         }
     }
 
+    @Override
+    public Map<String, Integer> getCommandsMap() {
+        return MapBuilder.of(
+                "showPanel", PanelCommands.SHOW_PANEL,
+                "hidePanel", PanelCommands.HIDE_PANEL,
+                "setPanelHeight", PanelCommands.SET_PANEL_HEIGHT);
+    }
+
+    @Override
+    public void receiveCommand(KeyboardView view, int commandId, @Nullable ReadableArray args) {
+        if (DEBUG) {
+            Log.e(TAG, "KeyboardViewManager.receiveCommand=" + commandId + ",args=" + args);
+        }
+        PanelCommands.dispatch(view, commandId, args);
+    }
+
     @Override
     public Map getExportedCustomDirectEventTypeConstants() {
         MapBuilder.Builder builder = MapBuilder.builder();
@@ -2,44 +2,121 @@ package im.shimo.react.keyboard;
 
 import android.content.Context;
 import android.graphics.Point;
+import android.util.DisplayMetrics;
 import android.view.Display;
 import android.view.WindowManager;
 
+import androidx.annotation.Nullable;
+
 import com.facebook.infer.annotation.Assertions;
+import com.facebook.react.uimanager.DisplayMetricsHolder;
 import com.facebook.react.uimanager.LayoutShadowNode;
 import com.facebook.react.uimanager.ReactShadowNodeImpl;
+import com.facebook.react.uimanager.annotations.ReactProp;
 import com.facebook.yoga.YogaJustify;
+import com.facebook.yoga.YogaUnit;
+import com.facebook.yoga.YogaValue;
 
 public class KeyboardViewShadowView extends LayoutShadowNode {
+    /**
+     * 子节点使用屏幕可能的最大尺寸
+     */
+    public static final String CHILD_SIZING_SCREEN = "screen";
+    /**
+     * 子节点使用当前窗口的尺寸，分屏、自由窗口下更小，窗口变化时跟着更新
+     */
+    public static final String CHILD_SIZING_WINDOW = "window";
+
     private static final Point MIN_POINT = new Point();
     private static final Point MAX_POINT = new Point();
     private static final Point SIZE_POINT = new Point();
 
+    private final ChildSizeCalculator mCalculator = new ChildSizeCalculator();
+    /**
+     * 屏幕模式下的尺寸，窗口模式下不使用
+     */
+    private int mScreenWidth = -1;
+    private int mScreenHeight = -1;
+    private final ChildSizeCalculator.Children mChildren = new ChildSizeCalculator.Children() {
+        @Override
+        public int getChildCount() {
+            return KeyboardViewShadowView.this.getChildCount();
+        }
+
+        @Override
+        public float getStyleWidth(int index) {
+            return toPoints(getChildAt(index).getStyleWidth());
+        }
+
+        @Override
+        public float getStyleHeight(int index) {
+            return toPoints(getChildAt(index).getStyleHeight());
+        }
+
+        @Override
+        public void setStyleWidth(int index, int width) {
+            getChildAt(index).setStyleWidth(width);
+        }
+
+        @Override
+        public void setStyleHeight(int index, int height) {
+            getChildAt(index).setStyleHeight(height);
+        }
+    };
+
     @Override
     public void addChildAt(ReactShadowNodeImpl child, int i) {
         super.addChildAt(child, i);
+        if (!mCalculator.isSizeToWindow()) {
+            queryScreenSize();
+        }
+        final DisplayMetrics metrics = DisplayMetricsHolder.getWindowDisplayMetrics();
+        mCalculator.compute(mScreenWidth, mScreenHeight, metrics.widthPixels, metrics.heightPixels);
+        child.setStyleWidth(mCalculator.getChildWidth());
+        child.setStyleHeight(mCalculator.getChildHeight());
+        child.setJustifyContent(YogaJustify.FLEX_END);
+    }
+
+    @ReactProp(name = "childSizing")
+    public void setChildSizing(@Nullable String childSizing) {
+        if (mCalculator.setSizeToWindow(CHILD_SIZING_WINDOW.equals(childSizing))) {
+            //在 JS 的批次里，随后就会布局
+            updateChildSize();
+        }
+    }
+
+    /**
+     * 窗口尺寸变化，需在 native modules 线程调用
+     *
+     * @return 子节点尺寸是否有变化，有变化时调用方需要发起布局
+     */
+    boolean setWindowSize(int width, int height) {
+        return mCalculator.setWindowSize(width, height) && updateChildSize();
+    }
+
+    private boolean updateChildSize() {
+        if (!mCalculator.isSizeToWindow()) {
+            queryScreenSize();
+        }
+        final DisplayMetrics metrics = DisplayMetricsHolder.getWindowDisplayMetrics();
+        return mCalculator.update(mChildren, mScreenWidth, mScreenHeight, metrics.widthPixels, metrics.heightPixels);
+    }
+
+    private static float toPoints(YogaValue value) {
+        return value.unit == YogaUnit.POINT ? value.value : Float.NaN;
+    }
+
+    /**
+     * 屏幕方向可能已经变化，每次都重新读取
+     */
+    private void queryScreenSize() {
         WindowManager wm = (WindowManager) getThemedContext().getSystemService(Context.WINDOW_SERVICE);
         Display display = Assertions.assertNotNull(wm).getDefaultDisplay();
         // getCurrentSizeRange will return the min and max width and height that the window can be
         display.getCurrentSizeRange(MIN_POINT, MAX_POINT);
         // getSize will return the dimensions of the screen in its current orientation
         display.getSize(SIZE_POINT);
-
-        int width;
-        int height;
-
-        if (SIZE_POINT.x < SIZE_POINT.y) {
-            // If we are vertical the width value comes from min width and height comes from max height
-            width = MIN_POINT.x;
-            height = MAX_POINT.y;
-        } else {
-            // If we are horizontal the width value comes from max width and height comes from min height
-            width = MAX_POINT.x;
-            height = MIN_POINT.y;
-        }
-
-        child.setStyleWidth(width);
-        child.setStyleHeight(height);
-        child.setJustifyContent(YogaJustify.FLEX_END);
+        mScreenWidth = ChildSizeCalculator.screenWidth(SIZE_POINT.x, SIZE_POINT.y, MIN_POINT.x, MAX_POINT.x);
+        mScreenHeight = ChildSizeCalculator.screenHeight(SIZE_POINT.x, SIZE_POINT.y, MIN_POINT.y, MAX_POINT.y);
     }
 }
@@ -0,0 +1,118 @@
+package im.shimo.react.keyboard;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ResultReceiver;
+import android.os.SystemClock;
+import android.view.inputmethod.InputMethodManager;
+
+/**
+ * 等待键盘真正打开或关闭：以 KeyboardStateStore 的状态为准；
+ * 状态不会变化时（硬件键盘、悬浮键盘、键盘本来就是目标状态）以输入法的回调为准，超时后结束。
+ * 只在UI线程使用
+ */
+class KeyboardVisibilityWaiter implements KeyboardStateStore.Listener, Runnable {
+    static final String CONFIRMED_BY_STATE = "state";
+    static final String CONFIRMED_BY_IME = "ime";
+    static final String CONFIRMED_BY_TIMEOUT = "timeout";
+
+    interface Callback {
+        /**
+         * @param reached     是否到达目标状态
+         * @param confirmedBy CONFIRMED_BY_STATE、CONFIRMED_BY_IME 或 CONFIRMED_BY_TIMEOUT
+         * @param latency     从开始等待到有结果的耗时(ms)
+         */
+        void onResult(boolean reached, String confirmedBy, long latency);
+    }
+
+    private final boolean mTargetOpened;
+    private final Callback mCallback;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final long mStart = SystemClock.uptimeMillis();
+    private boolean mImeConfirmed;
+    private boolean mDone;
+
+    private KeyboardVisibilityWaiter(boolean targetOpened, Callback callback) {
+        mTargetOpened = targetOpened;
+        mCallback = callback;
+    }
+
+    /**
+     * 在发出显示、隐藏请求之前调用，避免错过状态变化
+     */
+    static KeyboardVisibilityWaiter start(boolean targetOpened, long timeout, Callback callback) {
+        KeyboardVisibilityWaiter waiter = new KeyboardVisibilityWaiter(targetOpened, callback);
+        KeyboardStateStore.getInstance().addListener(waiter);
+        waiter.mHandler.postDelayed(waiter, timeout);
+        return waiter;
+    }
+
+    /**
+     * 输入法对请求的答复
+     *
+     * @param reached   输入法是否接受了请求
+     * @param unchanged 输入法本来就处于目标状态
+     */
+    void onImeResult(boolean reached, boolean unchanged) {
+        if (!reached) {
+            finish(false, CONFIRMED_BY_IME);
+        } else if (unchanged) {
+            finish(true, CONFIRMED_BY_IME);
+        } else if (KeyboardStateStore.getInstance().getSnapshot().isOpened() == mTargetOpened) {
+            finish(true, CONFIRMED_BY_STATE);
+        } else {
+            //等待布局确认
+            mImeConfirmed = true;
+        }
+    }
+
+    /**
+     * 用于 hideSoftInputFromWindow、showSoftInput
+     */
+    ResultReceiver createResultReceiver() {
+        return new ResultReceiver(mHandler) {
+            @Override
+            protected void onReceiveResult(int resultCode, Bundle resultData) {
+                if (mTargetOpened) {
+                    onImeResult(resultCode == InputMethodManager.RESULT_SHOWN
+                                    || resultCode == InputMethodManager.RESULT_UNCHANGED_SHOWN,
+                            resultCode == InputMethodManager.RESULT_UNCHANGED_SHOWN);
+                } else {
+                    onImeResult(resultCode == InputMethodManager.RESULT_HIDDEN
+                                    || resultCode == InputMethodManager.RESULT_UNCHANGED_HIDDEN,
+                            resultCode == InputMethodManager.RESULT_UNCHANGED_HIDDEN);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void onKeyboardStateChanged(KeyboardState state) {
+        if (state.isOpened() == mTargetOpened) {
+            finish(true, CONFIRMED_BY_STATE);
+        }
+    }
+
+    /**
+     * 超时
+     */
+    @Override
+    public void run() {
+        if (mImeConfirmed) {
+            finish(true, CONFIRMED_BY_IME);
+        } else {
+            finish(KeyboardStateStore.getInstance().getSnapshot().isOpened() == mTargetOpened, CONFIRMED_BY_TIMEOUT);
+        }
+    }
+
+    void finish(boolean reached, String confirmedBy) {
+        if (mDone) {
+            return;
+        }
+        mDone = true;
+        mHandler.removeCallbacks(this);
+        KeyboardStateStore.getInstance().removeListener(this);
+        mCallback.onResult(reached, confirmedBy, SystemClock.uptimeMillis() - mStart);
+    }
+}
@@ -0,0 +1,126 @@
+package im.shimo.react.keyboard;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 每个方向上最后一次稳定的 CoverView 和面板布局，旋转后直接恢复到缓存的位置，
+ * 之后实际测量的结果不同时再修正。
+ * 布局先记为待定，过渡结束、位置稳定后才由 settle 写入缓存，同时记下当时键盘的状态和高度，
+ * 只有键盘的状态和高度都一致时才会复用
+ */
+class OrientationLayoutCache {
+    static class Entry {
+        int coverHeight = -1;
+        int coverBottom;
+        int coverWidth;
+        int contentTop = -1;
+        int contentHeight;
+        int contentWidth;
+        boolean keyboardShown;
+        /**
+         * 键盘打开时为键盘高度，关闭时为占位高度，单位px
+         */
+        int keyboardHeight;
+
+        boolean hasCover() {
+            return coverHeight > -1;
+        }
+
+        boolean hasContent() {
+            return contentTop > -1;
+        }
+
+        void copyFrom(Entry other) {
+            coverHeight = other.coverHeight;
+            coverBottom = other.coverBottom;
+            coverWidth = other.coverWidth;
+            contentTop = other.contentTop;
+            contentHeight = other.contentHeight;
+            contentWidth = other.contentWidth;
+            keyboardShown = other.keyboardShown;
+            keyboardHeight = other.keyboardHeight;
+        }
+    }
+
+    /**
+     * 以 Configuration.ORIENTATION_* 为下标
+     */
+    private static final int ORIENTATION_COUNT = 3;
+
+    private final Entry[] mPending = new Entry[ORIENTATION_COUNT];
+    private final Entry[] mEntries = new Entry[ORIENTATION_COUNT];
+
+    synchronized void putCover(int orientation, int height, int bottom, int width) {
+        Entry entry = obtain(mPending, orientation);
+        if (entry == null) {
+            return;
+        }
+        entry.coverHeight = height;
+        entry.coverBottom = bottom;
+        entry.coverWidth = width;
+    }
+
+    synchronized void putContent(int orientation, int top, int height, int width) {
+        Entry entry = obtain(mPending, orientation);
+        if (entry == null) {
+            return;
+        }
+        entry.contentTop = top;
+        entry.contentHeight = height;
+        entry.contentWidth = width;
+    }
+
+    /**
+     * 过渡结束，待定的布局已经稳定
+     *
+     * @param keyboardHeight 键盘打开时为键盘高度，关闭时为占位高度
+     */
+    synchronized void settle(int orientation, boolean keyboardShown, int keyboardHeight) {
+        if (!isValid(orientation) || mPending[orientation] == null) {
+            return;
+        }
+        Entry entry = obtain(mEntries, orientation);
+        entry.copyFrom(mPending[orientation]);
+        entry.keyboardShown = keyboardShown;
+        entry.keyboardHeight = keyboardHeight;
+    }
+
+    /**
+     * @param keyboardHeight 小于0时不比较高度：键盘打开时，新方向上的键盘高度要等输入法布局之后才知道
+     * @return 没有记录，或者记录时键盘的状态、高度不同时返回 null
+     */
+    synchronized @Nullable Entry get(int orientation, boolean keyboardShown, int keyboardHeight) {
+        if (!isValid(orientation)) {
+            return null;
+        }
+        Entry entry = mEntries[orientation];
+        if (entry == null || entry.keyboardShown != keyboardShown
+                || (keyboardHeight >= 0 && entry.keyboardHeight != keyboardHeight)) {
+            return null;
+        }
+        Entry copy = new Entry();
+        copy.copyFrom(entry);
+        return copy;
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < ORIENTATION_COUNT; i++) {
+            mPending[i] = null;
+            mEntries[i] = null;
+        }
+    }
+
+    private static boolean isValid(int orientation) {
+        return orientation >= 0 && orientation < ORIENTATION_COUNT;
+    }
+
+    private static @Nullable Entry obtain(Entry[] entries, int orientation) {
+        if (!isValid(orientation)) {
+            return null;
+        }
+        if (entries[orientation] == null) {
+            entries[orientation] = new Entry();
+        }
+        return entries[orientation];
+    }
+}
@@ -0,0 +1,45 @@
+package im.shimo.react.keyboard;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableArray;
+
+/**
+ * KeyboardViewManager 的面板命令，与 View 无关的分发单独拿出来便于测试
+ */
+class PanelCommands {
+    interface Target {
+        void showPanel(int panelHeight);
+
+        void hidePanel();
+
+        void setPanelHeight(int panelHeight);
+    }
+
+    static final int SHOW_PANEL = 1;
+    static final int HIDE_PANEL = 2;
+    static final int SET_PANEL_HEIGHT = 3;
+
+    /**
+     * @param args 第一个参数为面板高度(dp)，可以省略
+     * @return 是否是已知的命令
+     */
+    static boolean dispatch(Target target, int commandId, @Nullable ReadableArray args) {
+        switch (commandId) {
+            case SHOW_PANEL:
+                target.showPanel(args != null && args.size() > 0 ? args.getInt(0) : 0);
+                return true;
+            case HIDE_PANEL:
+                target.hidePanel();
+                return true;
+            case SET_PANEL_HEIGHT:
+                //没有高度时忽略
+                if (args != null && args.size() > 0) {
+                    target.setPanelHeight(args.getInt(0));
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+}
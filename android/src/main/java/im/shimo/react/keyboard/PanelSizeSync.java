@@ -0,0 +1,69 @@
+package im.shimo.react.keyboard;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 面板尺寸同步到布局：记录面板当前的尺寸，与上次相同时不再调用 updateNodeSize。
+ * updateNodeSize 没有待执行的 UI 操作时会直接 dispatchViewUpdates，即一次全局布局，记为 HOST_LAYOUT。
+ * 需在 native modules 线程使用
+ */
+class PanelSizeSync {
+    interface NodeSizeUpdater {
+        void updateNodeSize(int viewTag, int width, int height);
+    }
+
+    private int mWidth = -1;
+    private int mHeight = -1;
+
+    boolean hasSize() {
+        return mWidth > -1;
+    }
+
+    int getWidth() {
+        return mWidth;
+    }
+
+    int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * 只设置样式，不发起布局
+     *
+     * @return 尺寸是否有变化
+     */
+    boolean setPanelSize(int width, int height) {
+        if (mWidth == width && mHeight == height) {
+            return false;
+        }
+        mWidth = width;
+        mHeight = height;
+        //KeyboardView 和 KeyboardContentView 两条路径都经过这里，只在此处计数
+        KeyboardMetrics.increment(KeyboardMetrics.Counter.CONTENT_LAYOUT);
+        onPanelSizeChanged(width, height);
+        return true;
+    }
+
+    /**
+     * 尺寸变化后、布局之前调用，shadow node 在这里设置子节点的样式
+     */
+    void onPanelSizeChanged(int width, int height) {
+    }
+
+    /**
+     * @param panel   面板记录的尺寸，shadow node 不是 KeyboardContentShadowNode 时为空，总是布局
+     * @param viewTag 需要布局的节点：面板本身或它的子节点
+     * @return 是否发起了布局
+     */
+    static boolean apply(@Nullable PanelSizeSync panel, int viewTag, int width, int height, NodeSizeUpdater updater) {
+        if (panel != null && !panel.setPanelSize(width, height)) {
+            //尺寸没变，或者另一条路径已经在同一批次里设置过
+            KeyboardMetrics.increment(KeyboardMetrics.Counter.DUPLICATE_SKIPPED);
+            return false;
+        }
+        //子节点的尺寸已经一起设置，只需这一次布局
+        KeyboardMetrics.increment(KeyboardMetrics.Counter.HOST_LAYOUT);
+        updater.updateNodeSize(viewTag, width, height);
+        return true;
+    }
+}
@@ -0,0 +1,110 @@
+package im.shimo.react.keyboard;
+
+/**
+ * 键盘与面板互相切换。
+ * 切到面板：面板先在键盘的位置放好再收起键盘，之后输入法收起引起的回调都不再移动面板；
+ * 切回键盘：面板保持在原位，键盘弹出后再收起。
+ * 与 View 无关，单独拿出来便于按事件顺序测试
+ */
+class PanelSwap {
+    interface Host {
+        /**
+         * 同步把 CoverView 和面板放在 top 处
+         */
+        void placePanel(int top);
+
+        /**
+         * 键盘没有打开时直接显示面板
+         */
+        void showPanel(int panelHeight);
+
+        void hideKeyboard();
+
+        void showKeyboard();
+
+        void dismissPanel();
+    }
+
+    private final Host mHost;
+    /**
+     * 键盘切换到面板之后，CoverView 固定在键盘高度
+     */
+    private boolean mPinned;
+    /**
+     * 面板切换回键盘，等键盘弹出后再收起面板
+     */
+    private boolean mSwapToKeyboardPending;
+
+    PanelSwap(Host host) {
+        mHost = host;
+    }
+
+    boolean isPinned() {
+        return mPinned;
+    }
+
+    /**
+     * @param keyboardShown 键盘是否打开
+     * @param keyboardTop   键盘顶部的位置，面板放在这里
+     * @param panelHeight   键盘没有打开时面板的高度
+     */
+    void swapToPanel(boolean keyboardShown, int keyboardTop, int panelHeight) {
+        mPinned = true;
+        mSwapToKeyboardPending = false;
+        if (keyboardShown) {
+            //面板在这里同步放好，CoverView 布局之后不再放置一次
+            mHost.placePanel(keyboardTop);
+            mHost.hideKeyboard();
+        } else {
+            mHost.showPanel(panelHeight);
+        }
+    }
+
+    /**
+     * @param keyboardShown 键盘是否打开，已经打开时不需要等待
+     * @param panelShowing  面板是否显示，显示时等键盘弹出后再收起
+     */
+    void swapToKeyboard(boolean keyboardShown, boolean panelShowing) {
+        mPinned = false;
+        if (keyboardShown) {
+            return;
+        }
+        mSwapToKeyboardPending = panelShowing;
+        mHost.showKeyboard();
+    }
+
+    void onKeyboardOpened() {
+        if (mSwapToKeyboardPending) {
+            mSwapToKeyboardPending = false;
+            mHost.dismissPanel();
+        }
+    }
+
+    /**
+     * @return 面板已经占住键盘的位置，键盘收起后无需再次布局
+     */
+    boolean onKeyboardClosed() {
+        return mPinned;
+    }
+
+    /**
+     * 键盘收起之后的布局变化
+     *
+     * @return 面板固定时不再移动 CoverView，调用方直接返回
+     */
+    boolean onKeyboardResize(boolean keyboardShown) {
+        return mPinned && !keyboardShown;
+    }
+
+    /**
+     * 面板被收起或移除，不再固定
+     */
+    void unpin() {
+        mPinned = false;
+    }
+
+    void reset() {
+        mPinned = false;
+        mSwapToKeyboardPending = false;
+    }
+}
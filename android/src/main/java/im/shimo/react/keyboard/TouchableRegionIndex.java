@@ -0,0 +1,106 @@
+package im.shimo.react.keyboard;
+
+import android.graphics.Matrix;
+import android.graphics.RectF;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.facebook.react.uimanager.PointerEvents;
+import com.facebook.react.uimanager.ReactPointerEventsView;
+
+import java.util.ArrayList;
+
+/**
+ * 一个 ViewGroup 中可以响应触摸的子View区域，用紧凑的 int 数组保存 [left, top, right, bottom, ...]，
+ * 坐标相对于 root。pointerEvents 为 NONE 的子树不计入，BOX_NONE 只计入它的子View。
+ * 子View的平移、缩放、旋转都计入，旋转后取外接矩形
+ */
+class TouchableRegionIndex {
+    private int[] mRegions = new int[16];
+    private int mCount;
+    /**
+     * 每层一个，从 root 到该层子View的变换，重建时复用
+     */
+    private final ArrayList<Matrix> mMatrices = new ArrayList<>();
+    private final RectF mTmpRect = new RectF();
+
+    void rebuild(ViewGroup root) {
+        mCount = 0;
+        final Matrix rootMatrix = obtainMatrix(0);
+        rootMatrix.setTranslate(-root.getScrollX(), -root.getScrollY());
+        collect(root, rootMatrix, 1);
+    }
+
+    private Matrix obtainMatrix(int depth) {
+        while (mMatrices.size() <= depth) {
+            mMatrices.add(new Matrix());
+        }
+        return mMatrices.get(depth);
+    }
+
+    int size() {
+        return mCount;
+    }
+
+    boolean contains(int x, int y) {
+        for (int i = 0; i < mCount; i++) {
+            final int offset = i * 4;
+            if (x >= mRegions[offset] && y >= mRegions[offset + 1]
+                    && x < mRegions[offset + 2] && y < mRegions[offset + 3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void collect(ViewGroup parent, Matrix parentMatrix, int depth) {
+        final Matrix matrix = obtainMatrix(depth);
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            final View child = parent.getChildAt(i);
+            if (child == null || child.getVisibility() != View.VISIBLE) {
+                continue;
+            }
+            final PointerEvents pointerEvents = child instanceof ReactPointerEventsView
+                    ? ((ReactPointerEventsView) child).getPointerEvents()
+                    : PointerEvents.AUTO;
+            if (pointerEvents == PointerEvents.NONE) {
+                continue;
+            }
+            //与 KeyboardCoverView.unionVisibleBounds 相同，getMatrix 包含平移、缩放和旋转
+            matrix.set(parentMatrix);
+            matrix.preTranslate(child.getLeft(), child.getTop());
+            final Matrix childMatrix = child.getMatrix();
+            if (!childMatrix.isIdentity()) {
+                matrix.preConcat(childMatrix);
+            }
+            if (pointerEvents != PointerEvents.BOX_NONE) {
+                mTmpRect.set(0, 0, child.getWidth(), child.getHeight());
+                matrix.mapRect(mTmpRect);
+                add((int) Math.floor(mTmpRect.left), (int) Math.floor(mTmpRect.top),
+                        (int) Math.ceil(mTmpRect.right), (int) Math.ceil(mTmpRect.bottom));
+            }
+            //子View可能超出父View的范围，同样需要计入
+            if (child instanceof ViewGroup && pointerEvents != PointerEvents.BOX_ONLY) {
+                matrix.preTranslate(-child.getScrollX(), -child.getScrollY());
+                collect((ViewGroup) child, matrix, depth + 1);
+            }
+        }
+    }
+
+    private void add(int left, int top, int right, int bottom) {
+        if (right <= left || bottom <= top) {
+            return;
+        }
+        final int offset = mCount * 4;
+        if (offset + 4 > mRegions.length) {
+            int[] regions = new int[mRegions.length * 2];
+            System.arraycopy(mRegions, 0, regions, 0, mRegions.length);
+            mRegions = regions;
+        }
+        mRegions[offset] = left;
+        mRegions[offset + 1] = top;
+        mRegions[offset + 2] = right;
+        mRegions[offset + 3] = bottom;
+        mCount++;
+    }
+}
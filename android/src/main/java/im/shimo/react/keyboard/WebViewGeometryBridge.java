@@ -0,0 +1,112 @@
+package im.shimo.react.keyboard;
+
+import android.graphics.Rect;
+import android.os.Build;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.View;
+import android.webkit.WebView;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.uimanager.PixelUtil;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 把键盘的几何信息直接推给获得焦点的 WebView，不经过 RN 的 JS 和 postMessage：
+ * 同一帧内的多次变化只推送最后一次，单位与 CSS px 一致(dp)。只在UI线程使用
+ */
+class WebViewGeometryBridge implements Choreographer.FrameCallback {
+    private final static String TAG = "WebViewGeometryBridge";
+    /**
+     * 只接受 a.b.c 形式的函数名，避免拼接出任意脚本
+     */
+    private static final Pattern FUNCTION_NAME = Pattern.compile("[A-Za-z_$][\\w$]*(\\.[A-Za-z_$][\\w$]*)*");
+
+    private @Nullable String mFunctionName;
+    private @Nullable WebView mWebView;
+    private boolean mScheduled;
+    private int mKeyboardHeight;
+    private float mProgress;
+    private boolean mKeyboardShown;
+    private int mPanelHeight;
+    private final Rect mVisibleFrame = new Rect();
+
+    void setFunctionName(@Nullable String functionName) {
+        if (functionName != null && !FUNCTION_NAME.matcher(functionName).matches()) {
+            if (KeyboardViewManager.DEBUG) {
+                Log.e(TAG, "invalid function name: " + functionName);
+            }
+            functionName = null;
+        }
+        mFunctionName = functionName;
+        if (functionName == null) {
+            cancel();
+        }
+    }
+
+    boolean isEnabled() {
+        return mFunctionName != null;
+    }
+
+    /**
+     * @param keyboardHeight 键盘当前露出的高度(px)
+     * @param panelHeight    面板的高度(px)，没有显示时为0
+     */
+    void update(@Nullable View focusView, int keyboardHeight, float progress, boolean keyboardShown, int panelHeight) {
+        if (mFunctionName == null) {
+            return;
+        }
+        if (!(focusView instanceof WebView)) {
+            //焦点已经离开 WebView，不再推给之前的页面
+            cancel();
+            return;
+        }
+        mWebView = (WebView) focusView;
+        mKeyboardHeight = keyboardHeight;
+        mProgress = progress;
+        mKeyboardShown = keyboardShown;
+        mPanelHeight = panelHeight;
+        mVisibleFrame.set(AdjustResizeWithFullScreen.getVisibleViewArea());
+        if (!mScheduled) {
+            mScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    void cancel() {
+        if (mScheduled) {
+            mScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+        mWebView = null;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mScheduled = false;
+        final WebView webView = mWebView;
+        if (webView == null || mFunctionName == null || webView.getWindowToken() == null) {
+            return;
+        }
+        final String script = String.format(Locale.US,
+                "try{window.%s({\"keyboardHeight\":%.1f,\"progress\":%.3f,\"keyboardShown\":%b,\"panelHeight\":%.1f,"
+                        + "\"visibleFrame\":{\"x\":%.1f,\"y\":%.1f,\"width\":%.1f,\"height\":%.1f}})}catch(e){}",
+                mFunctionName,
+                PixelUtil.toDIPFromPixel(mKeyboardHeight),
+                mProgress,
+                mKeyboardShown,
+                PixelUtil.toDIPFromPixel(mPanelHeight),
+                PixelUtil.toDIPFromPixel(mVisibleFrame.left),
+                PixelUtil.toDIPFromPixel(mVisibleFrame.top),
+                PixelUtil.toDIPFromPixel(mVisibleFrame.width()),
+                PixelUtil.toDIPFromPixel(mVisibleFrame.height()));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            webView.evaluateJavascript(script, null);
+        } else {
+            webView.loadUrl("javascript:" + script);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package im.shimo.react.keyboard;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChildSizeCalculatorTest {
+    /**
+     * 1080x2340 的手机，竖屏时屏幕模式的尺寸
+     */
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 2340;
+    /**
+     * Resources 里的窗口尺寸
+     */
+    private static final int FALLBACK_WIDTH = 1080;
+    private static final int FALLBACK_HEIGHT = 2200;
+
+    /**
+     * 用数组代替 shadow node 的子节点，NaN 表示不是 point 单位
+     */
+    private static class FakeChildren implements ChildSizeCalculator.Children {
+        final float[] widths;
+        final float[] heights;
+
+        FakeChildren(int count) {
+            widths = new float[count];
+            heights = new float[count];
+        }
+
+        @Override
+        public int getChildCount() {
+            return widths.length;
+        }
+
+        @Override
+        public float getStyleWidth(int index) {
+            return widths[index];
+        }
+
+        @Override
+        public float getStyleHeight(int index) {
+            return heights[index];
+        }
+
+        @Override
+        public void setStyleWidth(int index, int width) {
+            widths[index] = width;
+        }
+
+        @Override
+        public void setStyleHeight(int index, int height) {
+            heights[index] = height;
+        }
+    }
+
+    private ChildSizeCalculator mCalculator;
+    private FakeChildren mChildren;
+
+    @Before
+    public void setUp() {
+        mCalculator = new ChildSizeCalculator();
+        mChildren = new FakeChildren(2);
+    }
+
+    /**
+     * 与 addChildAt 相同：按当前尺寸设置所有子节点
+     */
+    private void addChildren() {
+        mCalculator.compute(SCREEN_WIDTH, SCREEN_HEIGHT, FALLBACK_WIDTH, FALLBACK_HEIGHT);
+        for (int i = 0; i < mChildren.getChildCount(); i++) {
+            mChildren.setStyleWidth(i, mCalculator.getChildWidth());
+            mChildren.setStyleHeight(i, mCalculator.getChildHeight());
+        }
+    }
+
+    private boolean resizeWindow(int width, int height) {
+        return mCalculator.setWindowSize(width, height)
+                && mCalculator.update(mChildren, SCREEN_WIDTH, SCREEN_HEIGHT, FALLBACK_WIDTH, FALLBACK_HEIGHT);
+    }
+
+    private void assertChild(int index, int width, int height) {
+        assertEquals(width, mChildren.getStyleWidth(index), 0);
+        assertEquals(height, mChildren.getStyleHeight(index), 0);
+    }
+
+    @Test
+    public void screenModeIgnoresWindow() {
+        addChildren();
+        assertChild(0, SCREEN_WIDTH, SCREEN_HEIGHT);
+        //分屏后窗口变小，屏幕模式不跟随
+        assertFalse(resizeWindow(1080, 1100));
+        assertChild(0, SCREEN_WIDTH, SCREEN_HEIGHT);
+    }
+
+    @Test
+    public void screenSizeFollowsOrientation() {
+        //竖屏：最小宽度 x 最大高度
+        assertEquals(1080, ChildSizeCalculator.screenWidth(1080, 2340, 1080, 2340));
+        assertEquals(2340, ChildSizeCalculator.screenHeight(1080, 2340, 1000, 2340));
+        //横屏：最大宽度 x 最小高度
+        assertEquals(2340, ChildSizeCalculator.screenWidth(2340, 1080, 1080, 2340));
+        assertEquals(1000, ChildSizeCalculator.screenHeight(2340, 1080, 1000, 2340));
+    }
+
+    @Test
+    public void windowModeBeforeLayoutUsesFallback() {
+        mCalculator.setSizeToWindow(true);
+        addChildren();
+        assertChild(0, FALLBACK_WIDTH, FALLBACK_HEIGHT);
+    }
+
+    @Test
+    public void splitScreenShrinksChildren() {
+        mCalculator.setSizeToWindow(true);
+        addChildren();
+        //窗口布局后的实际尺寸
+        assertTrue(resizeWindow(1080, 2100));
+        assertFalse(resizeWindow(1080, 2100));
+        //上下分屏
+        assertTrue(resizeWindow(1080, 1100));
+        assertChild(0, 1080, 1100);
+        assertChild(1, 1080, 1100);
+    }
+
+    @Test
+    public void freeformResizeSequence() {
+        mCalculator.setSizeToWindow(true);
+        addChildren();
+        final int[][] sizes = {{1080, 2100}, {800, 1200}, {800, 900}, {600, 900}, {1080, 2200}};
+        for (int[] size : sizes) {
+            assertTrue(resizeWindow(size[0], size[1]));
+            assertChild(0, size[0], size[1]);
+            assertChild(1, size[0], size[1]);
+        }
+    }
+
+    @Test
+    public void takenOverChildIsLeftAlone() {
+        mCalculator.setSizeToWindow(true);
+        addChildren();
+        resizeWindow(1080, 2100);
+        //键盘逻辑接管了第二个子节点的高度
+        mChildren.setStyleHeight(1, 800);
+        assertTrue(resizeWindow(1080, 1100));
+        assertChild(0, 1080, 1100);
+        assertEquals(1080, mChildren.getStyleWidth(1), 0);
+        assertEquals(800, mChildren.getStyleHeight(1), 0);
+        //不是 point 单位的样式同样不覆盖
+        mChildren.widths[0] = Float.NaN;
+        assertTrue(resizeWindow(800, 1100));
+        assertTrue(Float.isNaN(mChildren.getStyleWidth(0)));
+        assertEquals(800, mChildren.getStyleWidth(1), 0);
+    }
+
+    @Test
+    public void switchingModeUpdatesChildren() {
+        addChildren();
+        resizeWindow(1080, 1100);
+        assertTrue(mCalculator.setSizeToWindow(true));
+        assertTrue(mCalculator.update(mChildren, SCREEN_WIDTH, SCREEN_HEIGHT, FALLBACK_WIDTH, FALLBACK_HEIGHT));
+        assertChild(0, 1080, 1100);
+        assertFalse(mCalculator.setSizeToWindow(true));
+        assertTrue(mCalculator.setSizeToWindow(false));
+        assertTrue(mCalculator.update(mChildren, SCREEN_WIDTH, SCREEN_HEIGHT, FALLBACK_WIDTH, FALLBACK_HEIGHT));
+        assertChild(0, SCREEN_WIDTH, SCREEN_HEIGHT);
+    }
+}
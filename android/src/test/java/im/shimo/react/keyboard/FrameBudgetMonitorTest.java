@@ -0,0 +1,109 @@
+package im.shimo.react.keyboard;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FrameBudgetMonitorTest {
+    private static final long VSYNC_60 = 16666667;
+    private static final long VSYNC_120 = 8333333;
+
+    private FrameBudgetMonitor mMonitor;
+
+    @Before
+    public void setUp() {
+        mMonitor = new FrameBudgetMonitor();
+        mMonitor.startSession(60f);
+    }
+
+    private void feed(long frameNanos, int count) {
+        for (int i = 0; i < count; i++) {
+            mMonitor.onFrameInterval(frameNanos);
+        }
+    }
+
+    @Test
+    public void smoothFramesStayFull() {
+        feed(VSYNC_60, 16);
+        assertEquals(FrameBudgetMonitor.Mode.FULL, mMonitor.getMode());
+    }
+
+    @Test
+    public void slowFramesReduceOnSixtyHertz() {
+        feed(VSYNC_60 * 3, 8);
+        assertEquals(FrameBudgetMonitor.Mode.REDUCED, mMonitor.getMode());
+    }
+
+    @Test
+    public void recoversOnSixtyHertz() {
+        feed(VSYNC_60 * 3, 8);
+        assertEquals(FrameBudgetMonitor.Mode.REDUCED, mMonitor.getMode());
+        //按时完成的帧，平均间隔就是刷新周期
+        feed(VSYNC_60, 8);
+        assertEquals(FrameBudgetMonitor.Mode.FULL, mMonitor.getMode());
+    }
+
+    @Test
+    public void occasionalDropDoesNotReduce() {
+        mMonitor.startSession(120f);
+        for (int i = 0; i < 4; i++) {
+            feed(VSYNC_120, 3);
+            feed(VSYNC_120 * 2, 1);
+        }
+        assertEquals(FrameBudgetMonitor.Mode.FULL, mMonitor.getMode());
+    }
+
+    @Test
+    public void uniformlyHalvedFrameRateReduces() {
+        //每帧都错过一次 vsync，全程约 33ms
+        feed(VSYNC_60 * 2, 8);
+        assertEquals(FrameBudgetMonitor.Mode.REDUCED, mMonitor.getMode());
+    }
+
+    @Test
+    public void newSessionDiscardsStaleSamples() {
+        feed(VSYNC_60 * 3, 8);
+        assertEquals(FrameBudgetMonitor.Mode.REDUCED, mMonitor.getMode());
+        mMonitor.startSession(60f);
+        //REDUCED 沿用到新的采样周期
+        assertEquals(FrameBudgetMonitor.Mode.REDUCED, mMonitor.getMode());
+        //只有半个窗口的新样本，不能被旧的慢帧拉高
+        feed(VSYNC_60, 4);
+        assertEquals(FrameBudgetMonitor.Mode.FULL, mMonitor.getMode());
+    }
+
+    @Test
+    public void refreshRateChangeBetweenSessions() {
+        mMonitor.startSession(120f);
+        feed(VSYNC_120, 8);
+        mMonitor.startSession(60f);
+        //切到 60Hz 后不能按 120Hz 的周期判断为慢帧
+        feed(VSYNC_60, 8);
+        assertEquals(FrameBudgetMonitor.Mode.FULL, mMonitor.getMode());
+    }
+
+    @Test
+    public void unknownRefreshRateFallsBackToSixtyHertz() {
+        mMonitor.startSession(0f);
+        feed(VSYNC_60, 8);
+        assertEquals(FrameBudgetMonitor.Mode.FULL, mMonitor.getMode());
+        feed(VSYNC_60 * 2, 8);
+        assertEquals(FrameBudgetMonitor.Mode.REDUCED, mMonitor.getMode());
+    }
+
+    @Test
+    public void fixedPolicyOverridesMode() {
+        mMonitor.setPolicy(FrameBudgetMonitor.Policy.REDUCED);
+        assertEquals(FrameBudgetMonitor.Mode.REDUCED, mMonitor.getMode());
+        mMonitor.setPolicy(FrameBudgetMonitor.Policy.FULL);
+        assertEquals(FrameBudgetMonitor.Mode.FULL, mMonitor.getMode());
+    }
+
+    @Test
+    public void parsesPolicies() {
+        assertEquals(FrameBudgetMonitor.Policy.AUTO, FrameBudgetMonitor.Policy.fromString("auto"));
+        assertEquals(FrameBudgetMonitor.Policy.REDUCED, FrameBudgetMonitor.Policy.fromString("reduced"));
+        assertEquals(null, FrameBudgetMonitor.Policy.fromString("fast"));
+    }
+}
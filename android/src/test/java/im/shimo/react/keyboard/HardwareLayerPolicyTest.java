@@ -0,0 +1,23 @@
+package im.shimo.react.keyboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HardwareLayerPolicyTest {
+
+    @Test
+    public void parsesKnownPolicies() {
+        assertEquals(HardwareLayerPolicy.AUTO, HardwareLayerPolicy.fromString("auto"));
+        assertEquals(HardwareLayerPolicy.ALWAYS, HardwareLayerPolicy.fromString("always"));
+        assertEquals(HardwareLayerPolicy.NEVER, HardwareLayerPolicy.fromString("never"));
+    }
+
+    @Test
+    public void unknownPolicyIsNull() {
+        assertNull(HardwareLayerPolicy.fromString(null));
+        assertNull(HardwareLayerPolicy.fromString(""));
+        assertNull(HardwareLayerPolicy.fromString("sometimes"));
+    }
+}
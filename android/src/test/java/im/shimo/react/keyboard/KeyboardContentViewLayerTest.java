@@ -0,0 +1,96 @@
+package im.shimo.react.keyboard;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import com.facebook.react.bridge.ReactContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按 KeyboardView 的过渡监听模拟一次过渡：开始时 promote，逐帧平移，结束时只还原自己提升的层
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class KeyboardContentViewLayerTest {
+    private static final int FRAMES = 10;
+
+    private KeyboardContentView mContentView;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        KeyboardMetrics.reset();
+        KeyboardMetrics.setEnabled(true);
+        mContentView = new KeyboardContentView(new ReactContext(RuntimeEnvironment.application));
+        mContentView.layout(0, 0, 100, 200);
+        mCanvas = new Canvas(Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888));
+    }
+
+    @After
+    public void tearDown() {
+        KeyboardMetrics.setEnabled(false);
+        KeyboardMetrics.reset();
+    }
+
+    /**
+     * @param expectedLayer 过渡期间应有的层类型
+     */
+    private void runTransition(int expectedLayer) {
+        final boolean promoted = HardwareLayerPolicy.promote(mContentView);
+        for (int i = 1; i <= FRAMES; i++) {
+            mContentView.setTranslationY(200 - i * 20);
+            assertEquals(expectedLayer, mContentView.getLayerType());
+        }
+        if (promoted) {
+            HardwareLayerPolicy.demote(mContentView);
+        }
+    }
+
+    @Test
+    public void promotesForTransitionAndRestores() {
+        mContentView.draw(mCanvas);
+        assertEquals(1, KeyboardMetrics.get(KeyboardMetrics.Counter.CONTENT_DRAW));
+        assertTrue(HardwareLayerPolicy.promote(mContentView));
+        assertEquals(View.LAYER_TYPE_HARDWARE, mContentView.getLayerType());
+        HardwareLayerPolicy.demote(mContentView);
+        assertEquals(View.LAYER_TYPE_NONE, mContentView.getLayerType());
+
+        final long before = KeyboardMetrics.get(KeyboardMetrics.Counter.CONTENT_DRAW);
+        runTransition(View.LAYER_TYPE_HARDWARE);
+        //只有平移，不触发内容重绘
+        assertEquals(before, KeyboardMetrics.get(KeyboardMetrics.Counter.CONTENT_DRAW));
+        assertEquals(View.LAYER_TYPE_NONE, mContentView.getLayerType());
+        //每次 draw 只计一次
+        mContentView.draw(mCanvas);
+        assertEquals(2, KeyboardMetrics.get(KeyboardMetrics.Counter.CONTENT_DRAW));
+    }
+
+    @Test
+    public void keepsLayerSetByApp() {
+        //例如 renderToHardwareTextureAndroid
+        mContentView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        assertFalse(HardwareLayerPolicy.promote(mContentView));
+        runTransition(View.LAYER_TYPE_HARDWARE);
+        assertEquals(View.LAYER_TYPE_HARDWARE, mContentView.getLayerType());
+    }
+
+    @Test
+    public void keepsSoftwareLayerSetByApp() {
+        mContentView.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
+        assertFalse(HardwareLayerPolicy.promote(mContentView));
+        runTransition(View.LAYER_TYPE_SOFTWARE);
+        assertEquals(View.LAYER_TYPE_SOFTWARE, mContentView.getLayerType());
+    }
+}
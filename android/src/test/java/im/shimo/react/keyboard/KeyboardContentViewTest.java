@@ -0,0 +1,66 @@
+package im.shimo.react.keyboard;
+
+import android.view.View;
+
+import com.facebook.react.bridge.ReactContext;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 面板高度变化时，子树在按新尺寸布局之前与面板底部对齐
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class KeyboardContentViewTest {
+    private KeyboardContentView mContentView;
+    private View mChild;
+
+    @Before
+    public void setUp() {
+        mContentView = new KeyboardContentView(new ReactContext(RuntimeEnvironment.application));
+        //与高度过渡相同，尺寸稍后统一同步给 React
+        mContentView.setSizeUpdatesSuspended(true);
+        mChild = new View(RuntimeEnvironment.application);
+        mContentView.addView(mChild);
+        mContentView.layout(0, 0, 100, 200);
+        mChild.layout(0, 0, 100, 200);
+    }
+
+    @Test
+    public void growingPanelAlignsChildToBottom() {
+        mContentView.layout(0, 0, 100, 300);
+        assertEquals(100, mChild.getTranslationY(), 0);
+        //子树按新高度布局之后不再平移
+        mChild.layout(0, 0, 100, 300);
+        assertEquals(0, mChild.getTranslationY(), 0);
+    }
+
+    @Test
+    public void shrinkingPanelDoesNotOffsetChild() {
+        mContentView.layout(0, 0, 100, 150);
+        assertEquals(0, mChild.getTranslationY(), 0);
+    }
+
+    @Test
+    public void keepsTranslationSetByReact() {
+        mChild.setTranslationY(10);
+        mContentView.layout(0, 0, 100, 300);
+        assertEquals(110, mChild.getTranslationY(), 0);
+        mChild.layout(0, 0, 100, 300);
+        assertEquals(10, mChild.getTranslationY(), 0);
+    }
+
+    @Test
+    public void removedChildDropsOffset() {
+        mContentView.layout(0, 0, 100, 300);
+        mContentView.removeView(mChild);
+        assertEquals(0, mChild.getTranslationY(), 0);
+    }
+}
@@ -0,0 +1,98 @@
+package im.shimo.react.keyboard;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class KeyboardCoverViewTest {
+    private KeyboardCoverView mCoverView;
+    private View mChild;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        KeyboardMetrics.reset();
+        KeyboardMetrics.setEnabled(true);
+        mCoverView = new KeyboardCoverView(RuntimeEnvironment.application);
+        mChild = new View(RuntimeEnvironment.application);
+        mCoverView.addView(mChild);
+        mCoverView.layout(0, 0, 100, 200);
+        mChild.layout(10, 150, 60, 200);
+        mCoverView.setOptimizeOverdraw(true);
+        mCanvas = new Canvas(Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888));
+    }
+
+    @After
+    public void tearDown() {
+        KeyboardMetrics.setEnabled(false);
+        KeyboardMetrics.reset();
+    }
+
+    @Test
+    public void drawsOnlyVisibleBounds() {
+        mCoverView.draw(mCanvas);
+        assertEquals(1, KeyboardMetrics.get(KeyboardMetrics.Counter.COVER_DRAW));
+        assertEquals(50 * 50, KeyboardMetrics.get(KeyboardMetrics.Counter.COVER_DRAW_AREA));
+        assertEquals(new Rect(10, 150, 60, 200), mCoverView.getClipBounds());
+    }
+
+    @Test
+    public void skipsDrawWithoutVisibleContent() {
+        mChild.setVisibility(View.INVISIBLE);
+        mCoverView.draw(mCanvas);
+        assertEquals(0, KeyboardMetrics.get(KeyboardMetrics.Counter.COVER_DRAW));
+        assertEquals(0, KeyboardMetrics.get(KeyboardMetrics.Counter.COVER_DRAW_AREA));
+    }
+
+    @Test
+    public void translatedChildUpdatesClipWithoutRedraw() {
+        mCoverView.draw(mCanvas);
+        //原生驱动的动画只改变子View的属性，不会重新调用 draw
+        mChild.setTranslationY(-100);
+        mCoverView.onDescendantInvalidated(mChild, mChild);
+        mCoverView.getViewTreeObserver().dispatchOnPreDraw();
+        assertEquals(new Rect(10, 50, 60, 100), mCoverView.getClipBounds());
+        assertEquals(1, KeyboardMetrics.get(KeyboardMetrics.Counter.COVER_DRAW));
+    }
+
+    @Test
+    public void invalidationsAreCoalescedUntilPreDraw() {
+        mCoverView.draw(mCanvas);
+        //同一帧内的多次变化
+        for (int i = 1; i <= 5; i++) {
+            mChild.setTranslationY(-20 * i);
+            mCoverView.onDescendantInvalidated(mChild, mChild);
+        }
+        //绘制前才重新计算
+        assertEquals(new Rect(10, 150, 60, 200), mCoverView.getClipBounds());
+        mCoverView.getViewTreeObserver().dispatchOnPreDraw();
+        assertEquals(new Rect(10, 50, 60, 100), mCoverView.getClipBounds());
+        //已经更新过，下一帧不再计算
+        mChild.setTranslationY(0);
+        mCoverView.getViewTreeObserver().dispatchOnPreDraw();
+        assertEquals(new Rect(10, 50, 60, 100), mCoverView.getClipBounds());
+    }
+
+    @Test
+    public void backgroundRemovesClip() {
+        mCoverView.draw(mCanvas);
+        mCoverView.setBackgroundColor(0xffffffff);
+        mCoverView.draw(mCanvas);
+        assertNull(mCoverView.getClipBounds());
+        assertEquals(50 * 50 + 100 * 200, KeyboardMetrics.get(KeyboardMetrics.Counter.COVER_DRAW_AREA));
+    }
+}
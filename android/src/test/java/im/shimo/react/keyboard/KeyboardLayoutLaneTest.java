@@ -0,0 +1,158 @@
+package im.shimo.react.keyboard;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class KeyboardLayoutLaneTest {
+    /**
+     * 模拟 native modules 线程的消息队列，手动逐条执行
+     */
+    private static class FakeQueue implements KeyboardLayoutLane.Scheduler {
+        final LinkedList<Runnable> messages = new LinkedList<>();
+
+        @Override
+        public void postAtFront(Runnable runnable) {
+            messages.addFirst(runnable);
+        }
+
+        @Override
+        public void postAtBack(Runnable runnable) {
+            messages.addLast(runnable);
+        }
+
+        void runAll() {
+            while (!messages.isEmpty()) {
+                messages.removeFirst().run();
+            }
+        }
+    }
+
+    private FakeQueue mQueue;
+    private KeyboardLayoutLane mLane;
+    private List<String> mLog;
+
+    @Before
+    public void setUp() {
+        KeyboardMetrics.reset();
+        KeyboardMetrics.setEnabled(true);
+        mQueue = new FakeQueue();
+        mLane = new KeyboardLayoutLane(mQueue);
+        mLog = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        KeyboardMetrics.setEnabled(false);
+        KeyboardMetrics.reset();
+    }
+
+    private KeyboardLayoutLane.Task task(final String name) {
+        return new KeyboardLayoutLane.Task() {
+            @Override
+            public boolean run() {
+                mLog.add(name);
+                return true;
+            }
+        };
+    }
+
+    private Runnable message(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                mLog.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void jumpsAheadOfSaturatedQueue() {
+        for (int i = 0; i < 50; i++) {
+            mQueue.postAtBack(message("module" + i));
+        }
+        mLane.post(KeyboardLayoutLane.KEY_COVER, task("cover"));
+        mQueue.runAll();
+        assertEquals("cover", mLog.get(0));
+        assertEquals(51, mLog.size());
+    }
+
+    @Test
+    public void keepsOnlyLatestPerKeyInFirstSubmissionOrder() {
+        mQueue.postAtBack(message("module"));
+        mLane.post(KeyboardLayoutLane.KEY_COVER, task("cover1"));
+        mLane.post(KeyboardLayoutLane.KEY_CONTENT, task("content1"));
+        mLane.post(KeyboardLayoutLane.KEY_COVER, task("cover2"));
+        mLane.post(KeyboardLayoutLane.KEY_CONTENT, task("content2"));
+        //只排了一次
+        assertEquals(2, mQueue.messages.size());
+        mQueue.runAll();
+        assertEquals(Arrays.asList("cover2", "content2", "module"), mLog);
+        assertEquals(2, KeyboardMetrics.get(KeyboardMetrics.Counter.DUPLICATE_SKIPPED));
+    }
+
+    @Test
+    public void doesNotPreemptRunningMessage() {
+        //正在执行的消息里提交，只能排在它之后
+        mQueue.postAtBack(new Runnable() {
+            @Override
+            public void run() {
+                mLog.add("running start");
+                mLane.post(KeyboardLayoutLane.KEY_COVER, task("cover"));
+                mLog.add("running end");
+            }
+        });
+        mQueue.postAtBack(message("module"));
+        mQueue.runAll();
+        assertEquals(Arrays.asList("running start", "running end", "cover", "module"), mLog);
+    }
+
+    @Test
+    public void missingNodeRetriesAfterQueuedBatch() {
+        final boolean[] created = {false};
+        mQueue.postAtBack(new Runnable() {
+            @Override
+            public void run() {
+                mLog.add("createView");
+                created[0] = true;
+            }
+        });
+        mLane.post(KeyboardLayoutLane.KEY_COVER, new KeyboardLayoutLane.Task() {
+            @Override
+            public boolean run() {
+                mLog.add(created[0] ? "cover applied" : "cover deferred");
+                return created[0];
+            }
+        });
+        mQueue.runAll();
+        assertEquals(Arrays.asList("cover deferred", "createView", "cover applied"), mLog);
+    }
+
+    @Test
+    public void newerPostReplacesDeferredTask() {
+        mQueue.postAtBack(new Runnable() {
+            @Override
+            public void run() {
+                mLog.add("createView");
+                mLane.post(KeyboardLayoutLane.KEY_COVER, task("cover2"));
+            }
+        });
+        mLane.post(KeyboardLayoutLane.KEY_COVER, new KeyboardLayoutLane.Task() {
+            @Override
+            public boolean run() {
+                mLog.add("cover1");
+                return false;
+            }
+        });
+        mQueue.runAll();
+        //等待重试的旧状态被丢弃
+        assertEquals(Arrays.asList("cover1", "createView", "cover2"), mLog);
+    }
+}
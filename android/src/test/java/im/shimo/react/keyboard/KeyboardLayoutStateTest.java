@@ -0,0 +1,137 @@
+package im.shimo.react.keyboard;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.WritableMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class KeyboardLayoutStateTest {
+    /**
+     * 记录推送给组件的 state
+     */
+    private static class RecordingTarget implements KeyboardLayoutState.Target {
+        final List<WritableMap> states = new ArrayList<>();
+
+        @Override
+        public void updateState(WritableMap state) {
+            states.add(state);
+        }
+    }
+
+    private KeyboardLayoutState mState;
+    private RecordingTarget mTarget;
+
+    @Before
+    public void setUp() {
+        KeyboardMetrics.reset();
+        KeyboardMetrics.setEnabled(true);
+        mState = new KeyboardLayoutState() {
+            @Override
+            WritableMap createMap() {
+                return new JavaOnlyMap();
+            }
+        };
+        mState.setDensity(2f);
+        mTarget = new RecordingTarget();
+    }
+
+    @After
+    public void tearDown() {
+        KeyboardMetrics.setEnabled(false);
+        KeyboardMetrics.reset();
+    }
+
+    private WritableMap build(int width, int height, int bottom) {
+        return mState.build(width, height, bottom, new JavaOnlyMap());
+    }
+
+    @Test
+    public void convertsToDip() {
+        WritableMap state = build(720, 600, 0);
+        assertNotNull(state);
+        assertEquals(360, state.getDouble(KeyboardLayoutState.KEY_WIDTH), 0);
+        assertEquals(300, state.getDouble(KeyboardLayoutState.KEY_HEIGHT), 0);
+        assertEquals(0, state.getDouble(KeyboardLayoutState.KEY_BOTTOM), 0);
+    }
+
+    @Test
+    public void skipsUnchangedGeometry() {
+        assertNotNull(build(720, 600, 0));
+        assertNull(build(720, 600, 0));
+        assertNotNull(build(720, 500, 0));
+    }
+
+    @Test
+    public void omittedValuesKeepLastPushed() {
+        build(720, 600, 100);
+        //只改宽度，state 里仍然带着上一次的高度和 bottom
+        WritableMap state = build(1280, -1, -1);
+        assertNotNull(state);
+        assertEquals(640, state.getDouble(KeyboardLayoutState.KEY_WIDTH), 0);
+        assertEquals(300, state.getDouble(KeyboardLayoutState.KEY_HEIGHT), 0);
+        assertEquals(50, state.getDouble(KeyboardLayoutState.KEY_BOTTOM), 0);
+        assertNull(build(1280, -1, -1));
+    }
+
+    @Test
+    public void omitsUnknownValues() {
+        WritableMap state = build(720, -1, -1);
+        assertNotNull(state);
+        assertFalse(state.hasKey(KeyboardLayoutState.KEY_HEIGHT));
+        assertFalse(state.hasKey(KeyboardLayoutState.KEY_BOTTOM));
+    }
+
+    @Test
+    public void legacyRendererFallsBack() {
+        //没有 StateWrapper 时由调用方走 shadow node
+        assertFalse(mState.isActive());
+        assertFalse(mState.update(720, 600, 0));
+        assertEquals(0, KeyboardMetrics.get(KeyboardMetrics.Counter.DUPLICATE_SKIPPED));
+    }
+
+    @Test
+    public void pushesChangedStateToComponent() {
+        mState.setTarget(mTarget);
+        assertTrue(mState.isActive());
+        assertTrue(mState.update(720, 600, 0));
+        assertTrue(mState.update(720, 600, 0));
+        assertTrue(mState.update(720, 500, 0));
+        assertEquals(2, mTarget.states.size());
+        assertEquals(250, mTarget.states.get(1).getDouble(KeyboardLayoutState.KEY_HEIGHT), 0);
+        assertEquals(1, KeyboardMetrics.get(KeyboardMetrics.Counter.DUPLICATE_SKIPPED));
+    }
+
+    @Test
+    public void stateUpdateKeepsLastPushed() {
+        mState.setTarget(mTarget);
+        mState.update(720, 600, 0);
+        //组件 commit 之后会带着新的 StateWrapper 再次调用 updateState
+        RecordingTarget next = new RecordingTarget();
+        mState.setTarget(next);
+        mState.update(720, 600, 0);
+        assertEquals(0, next.states.size());
+    }
+
+    @Test
+    public void remountPushesAgain() {
+        mState.setTarget(mTarget);
+        mState.update(720, 600, 0);
+        mState.setTarget(null);
+        assertFalse(mState.update(720, 600, 0));
+        //重新挂载后的 state 是空的，需要再推一次
+        mState.setTarget(mTarget);
+        mState.update(720, 600, 0);
+        assertEquals(2, mTarget.states.size());
+    }
+}
@@ -0,0 +1,69 @@
+package im.shimo.react.keyboard;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class KeyboardMetricsTest {
+    @Before
+    public void setUp() {
+        KeyboardMetrics.reset();
+        KeyboardMetrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        KeyboardMetrics.setEnabled(false);
+        KeyboardMetrics.reset();
+    }
+
+    @Test
+    public void disabledMetricsDoNotCount() {
+        KeyboardMetrics.setEnabled(false);
+        KeyboardMetrics.increment(KeyboardMetrics.Counter.HOST_LAYOUT);
+        KeyboardMetrics.add(KeyboardMetrics.Counter.DROPPED_FRAMES, 3);
+        KeyboardMetrics.record(KeyboardMetrics.Histogram.DETECTION_TO_FRAME, 10);
+        assertEquals(0, KeyboardMetrics.get(KeyboardMetrics.Counter.HOST_LAYOUT));
+        assertEquals(0, KeyboardMetrics.get(KeyboardMetrics.Counter.DROPPED_FRAMES));
+        assertArrayEquals(new long[]{0, 0, 0, 0, 0, 0, 0},
+                KeyboardMetrics.get(KeyboardMetrics.Histogram.DETECTION_TO_FRAME));
+    }
+
+    @Test
+    public void countersAreIndependent() {
+        KeyboardMetrics.increment(KeyboardMetrics.Counter.HOST_LAYOUT);
+        KeyboardMetrics.increment(KeyboardMetrics.Counter.HOST_LAYOUT);
+        KeyboardMetrics.increment(KeyboardMetrics.Counter.CONTENT_LAYOUT);
+        KeyboardMetrics.add(KeyboardMetrics.Counter.DROPPED_FRAMES, 3);
+        assertEquals(2, KeyboardMetrics.get(KeyboardMetrics.Counter.HOST_LAYOUT));
+        assertEquals(1, KeyboardMetrics.get(KeyboardMetrics.Counter.CONTENT_LAYOUT));
+        assertEquals(3, KeyboardMetrics.get(KeyboardMetrics.Counter.DROPPED_FRAMES));
+        assertEquals(0, KeyboardMetrics.get(KeyboardMetrics.Counter.POPUP_UPDATE));
+    }
+
+    @Test
+    public void histogramBucketsAreInclusiveUpperBounds() {
+        KeyboardMetrics.record(KeyboardMetrics.Histogram.SHOW_KEYBOARD_READY, 16);
+        KeyboardMetrics.record(KeyboardMetrics.Histogram.SHOW_KEYBOARD_READY, 17);
+        KeyboardMetrics.record(KeyboardMetrics.Histogram.SHOW_KEYBOARD_READY, 512);
+        KeyboardMetrics.record(KeyboardMetrics.Histogram.SHOW_KEYBOARD_READY, 10000);
+        assertArrayEquals(new long[]{1, 1, 0, 0, 0, 1, 1},
+                KeyboardMetrics.get(KeyboardMetrics.Histogram.SHOW_KEYBOARD_READY));
+        //其他直方图不受影响
+        assertArrayEquals(new long[]{0, 0, 0, 0, 0, 0, 0},
+                KeyboardMetrics.get(KeyboardMetrics.Histogram.SHOW_KEYBOARD_TOUCH));
+    }
+
+    @Test
+    public void resetClearsCountersAndHistograms() {
+        KeyboardMetrics.increment(KeyboardMetrics.Counter.HOST_LAYOUT);
+        KeyboardMetrics.record(KeyboardMetrics.Histogram.DETECTION_TO_FRAME, 40);
+        KeyboardMetrics.reset();
+        assertEquals(0, KeyboardMetrics.get(KeyboardMetrics.Counter.HOST_LAYOUT));
+        assertArrayEquals(new long[]{0, 0, 0, 0, 0, 0, 0},
+                KeyboardMetrics.get(KeyboardMetrics.Histogram.DETECTION_TO_FRAME));
+    }
+}
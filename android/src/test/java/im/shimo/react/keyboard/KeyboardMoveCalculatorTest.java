@@ -0,0 +1,46 @@
+package im.shimo.react.keyboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class KeyboardMoveCalculatorTest {
+    private static final int KEYBOARD_HEIGHT = 300;
+
+    @Test
+    public void openingCountsDownTheRemainingOffset() {
+        assertEquals(0, KeyboardMoveCalculator.heightDuringTransition(KEYBOARD_HEIGHT, 300f, KEYBOARD_HEIGHT));
+        assertEquals(100, KeyboardMoveCalculator.heightDuringTransition(KEYBOARD_HEIGHT, 200f, KEYBOARD_HEIGHT));
+        assertEquals(KEYBOARD_HEIGHT, KeyboardMoveCalculator.heightDuringTransition(KEYBOARD_HEIGHT, 0f, KEYBOARD_HEIGHT));
+    }
+
+    @Test
+    public void closingUsesNegativeOffset() {
+        //收起时目标为 0，CoverView 从上方 -300 回到 0
+        assertEquals(KEYBOARD_HEIGHT, KeyboardMoveCalculator.heightDuringTransition(0, -300f, KEYBOARD_HEIGHT));
+        assertEquals(120, KeyboardMoveCalculator.heightDuringTransition(0, -119.6f, KEYBOARD_HEIGHT));
+        assertEquals(0, KeyboardMoveCalculator.heightDuringTransition(0, 0f, KEYBOARD_HEIGHT));
+    }
+
+    @Test
+    public void overshootIsClamped() {
+        //回弹插值器可能越过终点
+        assertEquals(KEYBOARD_HEIGHT, KeyboardMoveCalculator.heightDuringTransition(KEYBOARD_HEIGHT, -20f, KEYBOARD_HEIGHT));
+        assertEquals(0, KeyboardMoveCalculator.heightDuringTransition(0, 15f, KEYBOARD_HEIGHT));
+        assertEquals(KEYBOARD_HEIGHT, KeyboardMoveCalculator.heightDuringTransition(0, -340f, KEYBOARD_HEIGHT));
+    }
+
+    @Test
+    public void insetsExcludeNavigationBar() {
+        assertEquals(250, KeyboardMoveCalculator.heightFromInsets(300, 50));
+        assertEquals(0, KeyboardMoveCalculator.heightFromInsets(30, 50));
+    }
+
+    @Test
+    public void progressIsClampedAndSafeWithoutKeyboardHeight() {
+        assertEquals(0.5f, KeyboardMoveCalculator.progress(150, KEYBOARD_HEIGHT), 0f);
+        assertEquals(1f, KeyboardMoveCalculator.progress(400, KEYBOARD_HEIGHT), 0f);
+        assertEquals(0f, KeyboardMoveCalculator.progress(-10, KEYBOARD_HEIGHT), 0f);
+        assertEquals(0f, KeyboardMoveCalculator.progress(150, 0), 0f);
+    }
+}
@@ -0,0 +1,164 @@
+package im.shimo.react.keyboard;
+
+import android.graphics.Rect;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * KeyboardState 使用 Rect，需要 Robolectric
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class KeyboardStateStoreTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * 先把回调攒起来，代替 UI 线程、native modules 线程的消息队列
+     */
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> pending = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            pending.add(command);
+        }
+
+        void runAll() {
+            for (Runnable runnable : pending) {
+                runnable.run();
+            }
+            pending.clear();
+        }
+    }
+
+    private static class RecordingListener implements KeyboardStateStore.Listener {
+        final List<KeyboardState> states = new ArrayList<>();
+
+        @Override
+        public void onKeyboardStateChanged(KeyboardState state) {
+            states.add(state);
+        }
+    }
+
+    private KeyboardStateStore mStore;
+    private RecordingListener mListener;
+
+    @Before
+    public void setUp() {
+        mStore = new KeyboardStateStore();
+        mListener = new RecordingListener();
+    }
+
+    private static KeyboardState opened(int height, long timestamp) {
+        return new KeyboardState(true, height, new Rect(0, 0, 1080, 2200 - height), 2200, timestamp);
+    }
+
+    @Test
+    public void initialSnapshotIsClosed() {
+        assertSame(KeyboardState.EMPTY, mStore.getSnapshot());
+        assertFalse(mStore.getSnapshot().isOpened());
+    }
+
+    @Test
+    public void listenerReceivesPublishedState() {
+        mStore.addListener(mListener, DIRECT);
+        final KeyboardState state = opened(800, 1);
+        mStore.publish(state);
+        assertSame(state, mStore.getSnapshot());
+        assertEquals(1, mListener.states.size());
+        assertSame(state, mListener.states.get(0));
+    }
+
+    @Test
+    public void sameStateIsPublishedOnce() {
+        mStore.addListener(mListener, DIRECT);
+        final KeyboardState first = opened(800, 1);
+        mStore.publish(first);
+        //只有时间戳不同
+        mStore.publish(opened(800, 2));
+        assertEquals(1, mListener.states.size());
+        assertSame(first, mStore.getSnapshot());
+        //高度变化
+        mStore.publish(opened(760, 3));
+        assertEquals(2, mListener.states.size());
+        assertEquals(760, mStore.getSnapshot().getKeyboardHeight());
+    }
+
+    @Test
+    public void emptyStateIsNotPublished() {
+        mStore.addListener(mListener, DIRECT);
+        mStore.publish(new KeyboardState(false, 0, new Rect(), 0, 5));
+        assertTrue(mListener.states.isEmpty());
+    }
+
+    @Test
+    public void removedListenerIsNotCalled() {
+        mStore.addListener(mListener, DIRECT);
+        mStore.publish(opened(800, 1));
+        mStore.removeListener(mListener);
+        mStore.publish(opened(760, 2));
+        assertEquals(1, mListener.states.size());
+    }
+
+    @Test
+    public void nullListenerOrExecutorIsIgnored() {
+        mStore.addListener(null, DIRECT);
+        mStore.addListener(mListener, null);
+        mStore.publish(opened(800, 1));
+        assertTrue(mListener.states.isEmpty());
+    }
+
+    @Test
+    public void dispatchesOnListenerExecutor() {
+        final QueueExecutor executor = new QueueExecutor();
+        final RecordingListener direct = new RecordingListener();
+        mStore.addListener(mListener, executor);
+        mStore.addListener(direct, DIRECT);
+        final KeyboardState first = opened(800, 1);
+        final KeyboardState second = opened(760, 2);
+        mStore.publish(first);
+        mStore.publish(second);
+        //快照立即更新，回调等到 executor 执行
+        assertSame(second, mStore.getSnapshot());
+        assertTrue(mListener.states.isEmpty());
+        assertEquals(2, direct.states.size());
+        executor.runAll();
+        //每次回调带的是发布时的状态，顺序不变
+        assertEquals(2, mListener.states.size());
+        assertSame(first, mListener.states.get(0));
+        assertSame(second, mListener.states.get(1));
+    }
+
+    @Test
+    public void listenerCanUnsubscribeWhileNotified() {
+        final KeyboardStateStore.Listener once = new KeyboardStateStore.Listener() {
+            @Override
+            public void onKeyboardStateChanged(KeyboardState state) {
+                mListener.onKeyboardStateChanged(state);
+                mStore.removeListener(this);
+            }
+        };
+        mStore.addListener(once, DIRECT);
+        mStore.publish(opened(800, 1));
+        mStore.publish(opened(760, 2));
+        assertEquals(1, mListener.states.size());
+    }
+}
@@ -0,0 +1,94 @@
+package im.shimo.react.keyboard;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyboardStatusFilterTest {
+    private KeyboardStatusFilter mFilter;
+
+    @Before
+    public void setUp() {
+        mFilter = new KeyboardStatusFilter();
+        mFilter.setDensity(1f);
+        mFilter.setThresholds(120, 80);
+        mFilter.setDebounce(100);
+    }
+
+    @Test
+    public void opensAndClosesAcrossThresholds() {
+        assertEquals(KeyboardStatusFilter.STATE_CLOSED, mFilter.filter(0, 0));
+        assertEquals(KeyboardStatusFilter.STATE_OPENED, mFilter.filter(300, 1000));
+        assertEquals(KeyboardStatusFilter.STATE_OPENED, mFilter.filter(310, 2000));
+        assertEquals(KeyboardStatusFilter.STATE_CLOSED, mFilter.filter(0, 3000));
+    }
+
+    @Test
+    public void heightInsideHysteresisKeepsState() {
+        //关闭时 100 不足以打开
+        assertEquals(KeyboardStatusFilter.STATE_CLOSED, mFilter.filter(100, 0));
+        assertEquals(KeyboardStatusFilter.STATE_OPENED, mFilter.filter(300, 1000));
+        //打开时 100 不足以关闭
+        assertEquals(KeyboardStatusFilter.STATE_OPENED, mFilter.filter(100, 2000));
+        assertEquals(KeyboardStatusFilter.STATE_CLOSED, mFilter.filter(80, 3000));
+    }
+
+    @Test
+    public void reverseFlipInsideDebounceIsPending() {
+        assertEquals(KeyboardStatusFilter.STATE_OPENED, mFilter.filter(300, 1000));
+        assertEquals(KeyboardStatusFilter.STATE_PENDING, mFilter.filter(0, 1040));
+        assertTrue(mFilter.isOpened());
+        assertEquals(60, mFilter.getRemainingDebounce(1040));
+        //回到打开的高度，抖动被吸收
+        assertEquals(KeyboardStatusFilter.STATE_OPENED, mFilter.filter(300, 1060));
+        assertEquals(KeyboardStatusFilter.STATE_CLOSED, mFilter.filter(0, 1100));
+        assertEquals(100, mFilter.getRemainingDebounce(1100));
+    }
+
+    @Test
+    public void floatingKeyboardDoesNotCover() {
+        assertTrue(mFilter.isNotCovering(60));
+        assertFalse(mFilter.isNotCovering(100));
+        mFilter.filter(300, 1000);
+        //键盘打开后任何高度都视为遮挡
+        assertFalse(mFilter.isNotCovering(60));
+    }
+
+    @Test
+    public void closeThresholdIsClampedToOpenThreshold() {
+        mFilter.setThresholds(100, 150);
+        assertEquals(100f, mFilter.getOpenThreshold(), 0f);
+        assertEquals(100f, mFilter.getCloseThreshold(), 0f);
+    }
+
+    @Test
+    public void densityScalesThresholds() {
+        mFilter.setDensity(2f);
+        assertEquals(KeyboardStatusFilter.STATE_CLOSED, mFilter.filter(200, 0));
+        assertEquals(KeyboardStatusFilter.STATE_OPENED, mFilter.filter(241, 1000));
+    }
+
+    @Test
+    public void resetForgetsStateAndDebounce() {
+        mFilter.filter(300, 1000);
+        mFilter.reset();
+        assertFalse(mFilter.isOpened());
+        assertEquals(0, mFilter.getRemainingDebounce(1010));
+        assertEquals(KeyboardStatusFilter.STATE_OPENED, mFilter.filter(300, 1010));
+    }
+
+    @Test
+    public void hardwareModeIgnoresOnlyAccessoryBar() {
+        //外接键盘时的候选栏
+        assertTrue(mFilter.isAccessoryBar(48));
+        assertTrue(mFilter.isAccessoryBar(120));
+        //外接键盘时主动弹出的完整软键盘
+        assertFalse(mFilter.isAccessoryBar(300));
+        assertEquals(KeyboardStatusFilter.STATE_OPENED, mFilter.filter(300, 1000));
+        //打开之后的任何变化都照常处理
+        assertFalse(mFilter.isAccessoryBar(48));
+    }
+}
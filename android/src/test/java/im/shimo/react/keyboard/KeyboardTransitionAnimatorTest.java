@@ -0,0 +1,216 @@
+package im.shimo.react.keyboard;
+
+import android.view.Choreographer;
+import android.view.animation.Interpolator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 手动驱动每一帧，检查弹簧和输入法时长两种曲线
+ */
+public class KeyboardTransitionAnimatorTest {
+    private static final long FRAME_NANOS = 16_666_667L;
+    private static final Interpolator LINEAR = new Interpolator() {
+        @Override
+        public float getInterpolation(float input) {
+            return input;
+        }
+    };
+
+    /**
+     * 代替 Choreographer 和 SystemClock
+     */
+    private static class FakeScheduler implements KeyboardTransitionAnimator.FrameScheduler {
+        Choreographer.FrameCallback pending;
+        long now = 1000;
+        long frameTimeNanos = 1_000_000_000L;
+
+        @Override
+        public void postFrameCallback(Choreographer.FrameCallback callback) {
+            pending = callback;
+        }
+
+        @Override
+        public void removeFrameCallback(Choreographer.FrameCallback callback) {
+            if (pending == callback) {
+                pending = null;
+            }
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+
+        /**
+         * 走到 frameTimeNanos + deltaNanos 这一帧
+         */
+        void frame(long deltaNanos) {
+            frameTimeNanos += deltaNanos;
+            final Choreographer.FrameCallback callback = pending;
+            pending = null;
+            if (callback != null) {
+                callback.doFrame(frameTimeNanos);
+            }
+        }
+    }
+
+    private static class RecordingListener implements KeyboardTransitionAnimator.Listener {
+        final List<Float> coverOffsets = new ArrayList<>();
+        int starts;
+        int ends;
+
+        @Override
+        public void onTransitionStart() {
+            starts++;
+        }
+
+        @Override
+        public void onTransitionFrame(float coverOffset, float contentOffset) {
+            coverOffsets.add(coverOffset);
+        }
+
+        @Override
+        public void onTransitionEnd() {
+            ends++;
+        }
+
+        float last() {
+            return coverOffsets.get(coverOffsets.size() - 1);
+        }
+    }
+
+    private FakeScheduler mScheduler;
+    private RecordingListener mListener;
+    private KeyboardTransitionAnimator mAnimator;
+
+    @Before
+    public void setUp() {
+        mScheduler = new FakeScheduler();
+        mListener = new RecordingListener();
+        mAnimator = new KeyboardTransitionAnimator(mListener, mScheduler);
+    }
+
+    @Test
+    public void springSettlesWithoutOvershoot() {
+        mAnimator.animateBy(KeyboardTransitionAnimator.CHANNEL_COVER, 300);
+        assertEquals(300, mListener.last(), 0);
+        int frames = 0;
+        float previous = 300;
+        while (mAnimator.isRunning() && frames < 120) {
+            mScheduler.frame(FRAME_NANOS);
+            frames++;
+            final float offset = mListener.last();
+            //临界阻尼：单调回到 0，不越过终点
+            assertTrue(offset <= previous);
+            assertTrue(offset >= 0);
+            previous = offset;
+        }
+        assertFalse(mAnimator.isRunning());
+        assertTrue("frames=" + frames, frames < 60);
+        assertEquals(0, mListener.last(), 0);
+        assertEquals(1, mListener.starts);
+        assertEquals(1, mListener.ends);
+    }
+
+    @Test
+    public void springRetargetAddsOffset() {
+        mAnimator.animateBy(KeyboardTransitionAnimator.CHANNEL_COVER, 300);
+        mScheduler.frame(FRAME_NANOS);
+        mScheduler.frame(FRAME_NANOS);
+        final float offset = mListener.last();
+        mAnimator.animateBy(KeyboardTransitionAnimator.CHANNEL_COVER, -100);
+        //与布局落地同一帧，只叠加位置变化，不从头开始
+        assertEquals(offset - 100, mListener.last(), 0.001f);
+        assertEquals(1, mListener.starts);
+    }
+
+    @Test
+    public void timedFollowsImeDuration() {
+        mAnimator.setImeAnimationSpec(200, LINEAR);
+        mAnimator.animateBy(KeyboardTransitionAnimator.CHANNEL_COVER, 300);
+        //第一帧确定起点
+        mScheduler.frame(FRAME_NANOS);
+        assertEquals(300, mListener.last(), 0.001f);
+        mScheduler.frame(100_000_000L);
+        assertEquals(150, mListener.last(), 0.01f);
+        mScheduler.frame(100_000_000L);
+        assertFalse(mAnimator.isRunning());
+        assertEquals(1, mListener.ends);
+    }
+
+    @Test
+    public void timedRetargetKeepsRemainingTime() {
+        mAnimator.setImeAnimationSpec(200, LINEAR);
+        mAnimator.animateBy(KeyboardTransitionAnimator.CHANNEL_COVER, 300);
+        mScheduler.frame(FRAME_NANOS);
+        mScheduler.frame(100_000_000L);
+        assertEquals(150, mListener.last(), 0.01f);
+        mAnimator.animateBy(KeyboardTransitionAnimator.CHANNEL_COVER, 100);
+        assertEquals(250, mListener.last(), 0.01f);
+        //剩余一半时间，还剩一半的一半
+        mScheduler.frame(50_000_000L);
+        assertEquals(125, mListener.last(), 0.01f);
+        //结束时间与原来相同，不再从头走满 200ms
+        mScheduler.frame(50_000_000L);
+        assertFalse(mAnimator.isRunning());
+    }
+
+    @Test
+    public void newImeSpecRestartsDuration() {
+        mAnimator.setImeAnimationSpec(200, LINEAR);
+        mAnimator.animateBy(KeyboardTransitionAnimator.CHANNEL_COVER, 300);
+        mScheduler.frame(FRAME_NANOS);
+        mScheduler.frame(100_000_000L);
+        //输入法开始了另一次动画
+        mScheduler.now += 100;
+        mAnimator.setImeAnimationSpec(200, LINEAR);
+        mAnimator.animateBy(KeyboardTransitionAnimator.CHANNEL_COVER, 100);
+        mScheduler.frame(FRAME_NANOS);
+        mScheduler.frame(100_000_000L);
+        assertEquals(125, mListener.last(), 0.01f);
+        assertTrue(mAnimator.isRunning());
+    }
+
+    @Test
+    public void switchingToSpringKeepsVelocity() {
+        mAnimator.setImeAnimationSpec(200, LINEAR);
+        mAnimator.animateBy(KeyboardTransitionAnimator.CHANNEL_COVER, 300);
+        mScheduler.frame(FRAME_NANOS);
+        mScheduler.frame(FRAME_NANOS);
+        //输入法参数过期，叠加的偏移改用弹簧
+        mScheduler.now += 1000;
+        mAnimator.animateBy(KeyboardTransitionAnimator.CHANNEL_COVER, 50);
+        final float start = mListener.last();
+        mScheduler.frame(FRAME_NANOS);
+        final float moving = start - mListener.last();
+
+        //同样的偏移从静止开始
+        final FakeScheduler scheduler = new FakeScheduler();
+        final RecordingListener listener = new RecordingListener();
+        final KeyboardTransitionAnimator still = new KeyboardTransitionAnimator(listener, scheduler);
+        still.animateBy(KeyboardTransitionAnimator.CHANNEL_COVER, start);
+        scheduler.frame(FRAME_NANOS);
+        final float resting = start - listener.last();
+        assertTrue("moving=" + moving + ",resting=" + resting, moving > resting);
+    }
+
+    @Test
+    public void cancelJumpsToEnd() {
+        mAnimator.animateBy(KeyboardTransitionAnimator.CHANNEL_CONTENT, 300);
+        mAnimator.cancel();
+        assertFalse(mAnimator.isRunning());
+        assertEquals(0, mListener.last(), 0);
+        assertEquals(1, mListener.ends);
+        mAnimator.cancel();
+        assertEquals(1, mListener.ends);
+    }
+}
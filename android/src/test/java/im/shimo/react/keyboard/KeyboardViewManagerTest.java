@@ -0,0 +1,21 @@
+package im.shimo.react.keyboard;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyboardViewManagerTest {
+    @Test
+    public void exportsPanelCommandsWithDistinctIds() {
+        Map<String, Integer> commands = new KeyboardViewManager().getCommandsMap();
+        //与 KeyboardView.js 里 _dispatchCommand 使用的名字一致
+        assertTrue(commands.containsKey("showPanel"));
+        assertTrue(commands.containsKey("hidePanel"));
+        assertTrue(commands.containsKey("setPanelHeight"));
+        assertEquals(commands.size(), new HashSet<>(commands.values()).size());
+    }
+}
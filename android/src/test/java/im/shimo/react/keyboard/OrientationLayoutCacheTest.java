@@ -0,0 +1,117 @@
+package im.shimo.react.keyboard;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OrientationLayoutCacheTest {
+    private static final int PORTRAIT = 1;
+    private static final int LANDSCAPE = 2;
+
+    private OrientationLayoutCache mCache;
+
+    @Before
+    public void setUp() {
+        mCache = new OrientationLayoutCache();
+    }
+
+    @Test
+    public void unsettledLayoutIsNotCached() {
+        mCache.putCover(PORTRAIT, 1200, 0, 1080);
+        mCache.putContent(PORTRAIT, 1200, 700, 1080);
+        assertNull(mCache.get(PORTRAIT, true, -1));
+    }
+
+    @Test
+    public void onlyTheSettledLayoutIsKept() {
+        //过渡中的中间位置
+        mCache.putContent(PORTRAIT, 1500, 400, 1080);
+        mCache.putContent(PORTRAIT, 1300, 600, 1080);
+        mCache.putContent(PORTRAIT, 1200, 700, 1080);
+        mCache.putCover(PORTRAIT, 1200, 0, 1080);
+        mCache.settle(PORTRAIT, true, 700);
+
+        OrientationLayoutCache.Entry entry = mCache.get(PORTRAIT, true, -1);
+        assertNotNull(entry);
+        assertEquals(1200, entry.contentTop);
+        assertEquals(700, entry.contentHeight);
+        assertEquals(1200, entry.coverHeight);
+        assertTrue(entry.keyboardShown);
+        assertEquals(700, entry.keyboardHeight);
+    }
+
+    @Test
+    public void keyboardStateMustMatch() {
+        mCache.putCover(PORTRAIT, 1200, 0, 1080);
+        mCache.settle(PORTRAIT, true, 700);
+        //键盘已经关闭，不能恢复键盘打开时的布局
+        assertNull(mCache.get(PORTRAIT, false, 0));
+        assertNotNull(mCache.get(PORTRAIT, true, -1));
+    }
+
+    @Test
+    public void keyboardHeightMustMatchWhenKnown() {
+        mCache.putContent(PORTRAIT, 1500, 400, 1080);
+        mCache.settle(PORTRAIT, false, 400);
+        assertNotNull(mCache.get(PORTRAIT, false, 400));
+        assertNull(mCache.get(PORTRAIT, false, 500));
+    }
+
+    @Test
+    public void orientationsAreIndependent() {
+        mCache.putCover(PORTRAIT, 1200, 0, 1080);
+        mCache.settle(PORTRAIT, true, 700);
+        mCache.putCover(LANDSCAPE, 500, 0, 2280);
+        mCache.settle(LANDSCAPE, true, 500);
+
+        assertEquals(1080, mCache.get(PORTRAIT, true, -1).coverWidth);
+        assertEquals(2280, mCache.get(LANDSCAPE, true, -1).coverWidth);
+    }
+
+    @Test
+    public void rotationReplay() {
+        //竖屏打开键盘 -> 横屏 -> 回到竖屏
+        mCache.putCover(PORTRAIT, 1200, 0, 1080);
+        mCache.putContent(PORTRAIT, 1200, 700, 1080);
+        mCache.settle(PORTRAIT, true, 700);
+        assertNull(mCache.get(LANDSCAPE, true, -1));
+        mCache.putCover(LANDSCAPE, 500, 0, 2280);
+        mCache.putContent(LANDSCAPE, 500, 580, 2280);
+        mCache.settle(LANDSCAPE, true, 580);
+        OrientationLayoutCache.Entry entry = mCache.get(PORTRAIT, true, -1);
+        assertEquals(1200, entry.contentTop);
+        assertEquals(1080, entry.contentWidth);
+        //横屏时关闭了键盘，竖屏的记录不再适用
+        assertNull(mCache.get(PORTRAIT, false, 0));
+    }
+
+    @Test
+    public void returnedEntryIsACopy() {
+        mCache.putCover(PORTRAIT, 1200, 0, 1080);
+        mCache.settle(PORTRAIT, true, 700);
+        mCache.get(PORTRAIT, true, -1).coverHeight = 1;
+        assertEquals(1200, mCache.get(PORTRAIT, true, -1).coverHeight);
+    }
+
+    @Test
+    public void clearDropsEverything() {
+        mCache.putCover(PORTRAIT, 1200, 0, 1080);
+        mCache.settle(PORTRAIT, true, 700);
+        mCache.clear();
+        assertNull(mCache.get(PORTRAIT, true, -1));
+        mCache.settle(PORTRAIT, true, 700);
+        assertNull(mCache.get(PORTRAIT, true, -1));
+    }
+
+    @Test
+    public void invalidOrientationIsIgnored() {
+        mCache.putCover(7, 1200, 0, 1080);
+        mCache.settle(7, true, 700);
+        assertNull(mCache.get(7, true, -1));
+        assertNull(mCache.get(PORTRAIT, true, -1));
+    }
+}
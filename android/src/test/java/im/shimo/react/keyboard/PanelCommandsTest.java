@@ -0,0 +1,84 @@
+package im.shimo.react.keyboard;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * receiveCommand 的参数与 KeyboardView.js 里 _dispatchCommand 传入的一致
+ */
+public class PanelCommandsTest {
+    private static class FakeTarget implements PanelCommands.Target {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void showPanel(int panelHeight) {
+            calls.add("show:" + panelHeight);
+        }
+
+        @Override
+        public void hidePanel() {
+            calls.add("hide");
+        }
+
+        @Override
+        public void setPanelHeight(int panelHeight) {
+            calls.add("height:" + panelHeight);
+        }
+    }
+
+    private FakeTarget mTarget;
+
+    @Before
+    public void setUp() {
+        mTarget = new FakeTarget();
+    }
+
+    @Test
+    public void showPanelPassesHeight() {
+        assertTrue(PanelCommands.dispatch(mTarget, PanelCommands.SHOW_PANEL, JavaOnlyArray.of(320)));
+        //JS 的数字经过桥之后是 double
+        assertTrue(PanelCommands.dispatch(mTarget, PanelCommands.SHOW_PANEL, JavaOnlyArray.of(280.0)));
+        assertEquals(Arrays.asList("show:320", "show:280"), mTarget.calls);
+    }
+
+    @Test
+    public void showPanelWithoutHeight() {
+        PanelCommands.dispatch(mTarget, PanelCommands.SHOW_PANEL, null);
+        PanelCommands.dispatch(mTarget, PanelCommands.SHOW_PANEL, JavaOnlyArray.of());
+        assertEquals(Arrays.asList("show:0", "show:0"), mTarget.calls);
+    }
+
+    @Test
+    public void hidePanelIgnoresArgs() {
+        PanelCommands.dispatch(mTarget, PanelCommands.HIDE_PANEL, null);
+        PanelCommands.dispatch(mTarget, PanelCommands.HIDE_PANEL, JavaOnlyArray.of());
+        PanelCommands.dispatch(mTarget, PanelCommands.HIDE_PANEL, JavaOnlyArray.of(1));
+        assertEquals(Arrays.asList("hide", "hide", "hide"), mTarget.calls);
+    }
+
+    @Test
+    public void setPanelHeightNeedsHeight() {
+        assertTrue(PanelCommands.dispatch(mTarget, PanelCommands.SET_PANEL_HEIGHT, null));
+        assertTrue(PanelCommands.dispatch(mTarget, PanelCommands.SET_PANEL_HEIGHT, JavaOnlyArray.of()));
+        assertEquals(Collections.emptyList(), mTarget.calls);
+        PanelCommands.dispatch(mTarget, PanelCommands.SET_PANEL_HEIGHT, JavaOnlyArray.of(240));
+        assertEquals(Arrays.asList("height:240"), mTarget.calls);
+    }
+
+    @Test
+    public void unknownCommandIsIgnored() {
+        assertFalse(PanelCommands.dispatch(mTarget, 99, JavaOnlyArray.of(1)));
+        assertEquals(Collections.emptyList(), mTarget.calls);
+    }
+}
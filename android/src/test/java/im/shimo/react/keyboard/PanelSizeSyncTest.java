@@ -0,0 +1,108 @@
+package im.shimo.react.keyboard;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 只有面板变化时，宿主树的布局次数：每次真正的尺寸变化一次，重复的不再布局
+ */
+public class PanelSizeSyncTest {
+    private static final int PANEL_TAG = 11;
+    private static final int CHILD_TAG = 12;
+
+    /**
+     * 代替 UIManagerModule，记录 updateNodeSize 的调用
+     */
+    private static class FakeUIManager implements PanelSizeSync.NodeSizeUpdater {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void updateNodeSize(int viewTag, int width, int height) {
+            calls.add(viewTag + ":" + width + "x" + height);
+        }
+    }
+
+    private PanelSizeSync mPanel;
+    private FakeUIManager mUIManager;
+
+    @Before
+    public void setUp() {
+        KeyboardMetrics.reset();
+        KeyboardMetrics.setEnabled(true);
+        mPanel = new PanelSizeSync();
+        mUIManager = new FakeUIManager();
+    }
+
+    @After
+    public void tearDown() {
+        KeyboardMetrics.setEnabled(false);
+        KeyboardMetrics.reset();
+    }
+
+    /**
+     * 同一次变化里 KeyboardView 布局面板，KeyboardContentView.onSizeChanged 布局面板的子节点
+     */
+    private void resizePanel(int width, int height) {
+        PanelSizeSync.apply(mPanel, PANEL_TAG, width, height, mUIManager);
+        PanelSizeSync.apply(mPanel, CHILD_TAG, width, height, mUIManager);
+    }
+
+    @Test
+    public void keyboardHeightChangesLayOutOncePerChange() {
+        resizePanel(1080, 800);
+        resizePanel(1080, 800);
+        //键盘高度变化
+        resizePanel(1080, 760);
+        assertEquals(2, KeyboardMetrics.get(KeyboardMetrics.Counter.HOST_LAYOUT));
+        assertEquals(2, KeyboardMetrics.get(KeyboardMetrics.Counter.CONTENT_LAYOUT));
+        assertEquals(4, KeyboardMetrics.get(KeyboardMetrics.Counter.DUPLICATE_SKIPPED));
+        assertEquals(Arrays.asList(PANEL_TAG + ":1080x800", PANEL_TAG + ":1080x760"), mUIManager.calls);
+    }
+
+    @Test
+    public void placeholderAndRotationChanges() {
+        resizePanel(1080, 800);
+        //placeholder 变化
+        resizePanel(1080, 600);
+        //旋转后宽度变化
+        resizePanel(1920, 600);
+        assertEquals(3, KeyboardMetrics.get(KeyboardMetrics.Counter.HOST_LAYOUT));
+        assertEquals(3, mUIManager.calls.size());
+    }
+
+    @Test
+    public void childPathAloneStillLaysOut() {
+        //KeyboardView 没有设置过，由面板的子节点这条路径布局
+        assertTrue(PanelSizeSync.apply(mPanel, CHILD_TAG, 1080, 800, mUIManager));
+        assertFalse(PanelSizeSync.apply(mPanel, PANEL_TAG, 1080, 800, mUIManager));
+        assertEquals(Arrays.asList(CHILD_TAG + ":1080x800"), mUIManager.calls);
+        assertEquals(1, KeyboardMetrics.get(KeyboardMetrics.Counter.HOST_LAYOUT));
+    }
+
+    @Test
+    public void legacyPanelWithoutRecordAlwaysLaysOut() {
+        //shadow node 不是 KeyboardContentShadowNode
+        PanelSizeSync.apply(null, PANEL_TAG, 1080, 800, mUIManager);
+        PanelSizeSync.apply(null, PANEL_TAG, 1080, 800, mUIManager);
+        assertEquals(2, KeyboardMetrics.get(KeyboardMetrics.Counter.HOST_LAYOUT));
+        assertEquals(0, KeyboardMetrics.get(KeyboardMetrics.Counter.DUPLICATE_SKIPPED));
+    }
+
+    @Test
+    public void remembersLastSize() {
+        assertFalse(mPanel.hasSize());
+        resizePanel(1080, 800);
+        assertTrue(mPanel.hasSize());
+        assertEquals(1080, mPanel.getWidth());
+        assertEquals(800, mPanel.getHeight());
+    }
+}
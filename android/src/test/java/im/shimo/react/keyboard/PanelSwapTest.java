@@ -0,0 +1,133 @@
+package im.shimo.react.keyboard;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按 AdjustResizeWithFullScreen 的回调顺序记录事件，切换过程中面板只放置一次
+ */
+public class PanelSwapTest {
+    private static final int KEYBOARD_TOP = 1200;
+    private static final int WINDOW_BOTTOM = 2000;
+
+    /**
+     * 代替 KeyboardView，记录每次放置和键盘操作
+     */
+    private static class FakeHost implements PanelSwap.Host {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void placePanel(int top) {
+            events.add("place:" + top);
+        }
+
+        @Override
+        public void showPanel(int panelHeight) {
+            events.add("show:" + panelHeight);
+        }
+
+        @Override
+        public void hideKeyboard() {
+            events.add("hideKeyboard");
+        }
+
+        @Override
+        public void showKeyboard() {
+            events.add("showKeyboard");
+        }
+
+        @Override
+        public void dismissPanel() {
+            events.add("dismiss");
+        }
+    }
+
+    private FakeHost mHost;
+    private PanelSwap mSwap;
+
+    @Before
+    public void setUp() {
+        mHost = new FakeHost();
+        mSwap = new PanelSwap(mHost);
+    }
+
+    /**
+     * 与 KeyboardView 相同：先 onKeyboardClosed，再 onKeyboardResize，没有被拦下时 CoverView 重新布局
+     */
+    private void keyboardClosed() {
+        if (!mSwap.onKeyboardClosed()) {
+            mHost.events.add("relayout:closed");
+        }
+        if (!mSwap.onKeyboardResize(false)) {
+            mHost.events.add("place:" + WINDOW_BOTTOM);
+        }
+    }
+
+    private void keyboardOpened() {
+        mSwap.onKeyboardOpened();
+        if (!mSwap.onKeyboardResize(true)) {
+            mHost.events.add("place:" + KEYBOARD_TOP);
+        }
+    }
+
+    @Test
+    public void swapToPanelPlacesOnce() {
+        mSwap.swapToPanel(true, KEYBOARD_TOP, 0);
+        keyboardClosed();
+        //导航栏等引起的后续布局变化
+        assertTrue(mSwap.onKeyboardResize(false));
+        assertEquals(Arrays.asList("place:" + KEYBOARD_TOP, "hideKeyboard"), mHost.events);
+    }
+
+    @Test
+    public void swapToPanelWithoutKeyboardShowsPanel() {
+        mSwap.swapToPanel(false, KEYBOARD_TOP, 300);
+        assertEquals(Arrays.asList("show:300"), mHost.events);
+        assertTrue(mSwap.isPinned());
+    }
+
+    @Test
+    public void swapToKeyboardPlacesOnce() {
+        mSwap.swapToPanel(true, KEYBOARD_TOP, 0);
+        keyboardClosed();
+        mHost.events.clear();
+        mSwap.swapToKeyboard(false, true);
+        //面板保持在原位，键盘弹出后才收起
+        assertEquals(Arrays.asList("showKeyboard"), mHost.events);
+        keyboardOpened();
+        assertEquals(Arrays.asList("showKeyboard", "dismiss", "place:" + KEYBOARD_TOP), mHost.events);
+    }
+
+    @Test
+    public void swapToKeyboardWhileShownDoesNothing() {
+        mSwap.swapToKeyboard(true, true);
+        keyboardOpened();
+        assertEquals(Arrays.asList("place:" + KEYBOARD_TOP), mHost.events);
+    }
+
+    @Test
+    public void hiddenPanelFollowsKeyboardAgain() {
+        mSwap.swapToPanel(true, KEYBOARD_TOP, 0);
+        mSwap.reset();
+        keyboardClosed();
+        assertFalse(mSwap.isPinned());
+        assertEquals(Arrays.asList("place:" + KEYBOARD_TOP, "hideKeyboard", "relayout:closed", "place:" + WINDOW_BOTTOM),
+                mHost.events);
+    }
+
+    @Test
+    public void unpinKeepsPendingDismiss() {
+        mSwap.swapToKeyboard(false, true);
+        mSwap.unpin();
+        keyboardOpened();
+        assertEquals(Arrays.asList("showKeyboard", "dismiss", "place:" + KEYBOARD_TOP), mHost.events);
+    }
+}
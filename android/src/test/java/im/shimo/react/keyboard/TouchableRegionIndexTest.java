@@ -0,0 +1,186 @@
+package im.shimo.react.keyboard;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.facebook.react.uimanager.PointerEvents;
+import com.facebook.react.uimanager.ReactPointerEventsView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TouchableRegionIndexTest {
+    private static class PointerEventsLayout extends FrameLayout implements ReactPointerEventsView {
+        private final PointerEvents mPointerEvents;
+
+        PointerEventsLayout(Context context, PointerEvents pointerEvents) {
+            super(context);
+            mPointerEvents = pointerEvents;
+        }
+
+        @Override
+        public PointerEvents getPointerEvents() {
+            return mPointerEvents;
+        }
+    }
+
+    private Context mContext;
+    private FrameLayout mRoot;
+    private TouchableRegionIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mRoot = new FrameLayout(mContext);
+        mRoot.layout(0, 0, 400, 800);
+        mIndex = new TouchableRegionIndex();
+    }
+
+    private <T extends View> T add(FrameLayout parent, T child, int left, int top, int right, int bottom) {
+        parent.addView(child);
+        child.layout(left, top, right, bottom);
+        return child;
+    }
+
+    @Test
+    public void boxNoneContainerOnlyCountsChildren() {
+        //全屏的 box-none 容器，只有底部的工具栏可以点击
+        FrameLayout container = add(mRoot, new PointerEventsLayout(mContext, PointerEvents.BOX_NONE), 0, 0, 400, 800);
+        add(container, new View(mContext), 0, 700, 400, 800);
+        mIndex.rebuild(mRoot);
+        assertEquals(1, mIndex.size());
+        assertFalse(mIndex.contains(200, 300));
+        assertTrue(mIndex.contains(200, 750));
+        //右、下边界不包含
+        assertFalse(mIndex.contains(400, 750));
+    }
+
+    @Test
+    public void noneSubtreeAndInvisibleChildrenAreSkipped() {
+        FrameLayout none = add(mRoot, new PointerEventsLayout(mContext, PointerEvents.NONE), 0, 0, 400, 400);
+        add(none, new View(mContext), 0, 0, 100, 100);
+        View hidden = add(mRoot, new View(mContext), 0, 500, 400, 600);
+        hidden.setVisibility(View.INVISIBLE);
+        mIndex.rebuild(mRoot);
+        assertEquals(0, mIndex.size());
+        assertFalse(mIndex.contains(50, 50));
+    }
+
+    @Test
+    public void boxOnlyDoesNotDescend() {
+        FrameLayout boxOnly = add(mRoot, new PointerEventsLayout(mContext, PointerEvents.BOX_ONLY), 0, 0, 100, 100);
+        //超出父View范围的子View，BOX_ONLY 时不计入
+        add(boxOnly, new View(mContext), 0, 200, 100, 300);
+        mIndex.rebuild(mRoot);
+        assertEquals(1, mIndex.size());
+        assertFalse(mIndex.contains(50, 250));
+    }
+
+    @Test
+    public void translationAndScrollAreApplied() {
+        FrameLayout container = add(mRoot, new PointerEventsLayout(mContext, PointerEvents.BOX_NONE), 0, 100, 400, 800);
+        View child = add(container, new View(mContext), 0, 0, 100, 100);
+        child.setTranslationY(50);
+        container.scrollTo(0, 20);
+        mIndex.rebuild(mRoot);
+        //100 + 50 - 20
+        assertFalse(mIndex.contains(50, 129));
+        assertTrue(mIndex.contains(50, 130));
+        assertTrue(mIndex.contains(50, 229));
+        assertFalse(mIndex.contains(50, 230));
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        for (int i = 0; i < 10; i++) {
+            add(mRoot, new View(mContext), 0, i * 10, 10, i * 10 + 5);
+        }
+        mIndex.rebuild(mRoot);
+        assertEquals(10, mIndex.size());
+        assertTrue(mIndex.contains(5, 92));
+        assertFalse(mIndex.contains(5, 97));
+    }
+
+    @Test
+    public void scaleIsApplied() {
+        View child = add(mRoot, new View(mContext), 0, 0, 100, 100);
+        //以中心为轴放大一倍，范围变成 -50..150
+        child.setScaleX(2);
+        child.setScaleY(2);
+        mIndex.rebuild(mRoot);
+        assertTrue(mIndex.contains(140, 140));
+        assertFalse(mIndex.contains(160, 160));
+    }
+
+    @Test
+    public void rotationUsesBoundingBox() {
+        View child = add(mRoot, new View(mContext), 0, 0, 200, 100);
+        //绕中心转 90 度，变成 x 50..150、y -50..150
+        child.setRotation(90);
+        mIndex.rebuild(mRoot);
+        assertTrue(mIndex.contains(100, 140));
+        assertFalse(mIndex.contains(180, 50));
+    }
+
+    @Test
+    public void containerScaleAppliesToChildren() {
+        FrameLayout container = add(mRoot, new PointerEventsLayout(mContext, PointerEvents.BOX_NONE), 0, 0, 200, 200);
+        container.setPivotX(0);
+        container.setPivotY(0);
+        container.setScaleX(0.5f);
+        container.setScaleY(0.5f);
+        add(container, new View(mContext), 100, 100, 200, 200);
+        mIndex.rebuild(mRoot);
+        assertTrue(mIndex.contains(75, 75));
+        assertFalse(mIndex.contains(150, 150));
+    }
+
+    /**
+     * 多个子View时重建和命中测试的耗时，输出到标准输出，上限只用来发现数量级的退化
+     */
+    @Test
+    public void benchmarkManyChildren() {
+        final int rows = 50;
+        final int columns = 20;
+        for (int row = 0; row < rows; row++) {
+            FrameLayout container = add(mRoot, new PointerEventsLayout(mContext, PointerEvents.BOX_NONE), 0, row * 16, 400, row * 16 + 16);
+            for (int column = 0; column < columns; column++) {
+                add(container, new View(mContext), column * 20, 0, column * 20 + 10, 10);
+            }
+        }
+        final int iterations = 100;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            mIndex.rebuild(mRoot);
+        }
+        final long rebuildNanos = (System.nanoTime() - start) / iterations;
+        assertEquals(rows * columns, mIndex.size());
+
+        final int hits = 10000;
+        int found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < hits; i++) {
+            //一半落在子View上，一半落在间隙里
+            if (mIndex.contains((i % columns) * 20 + (i % 2 == 0 ? 5 : 15), (i % rows) * 16 + 5)) {
+                found++;
+            }
+        }
+        final long hitNanos = (System.nanoTime() - start) / hits;
+        assertEquals(hits / 2, found);
+        System.out.println("TouchableRegionIndex " + rows * columns + " children: rebuild "
+                + rebuildNanos / 1000 + "us, contains " + hitNanos + "ns");
+        assertTrue(rebuildNanos < 50000000L);
+        assertTrue(hitNanos < 1000000L);
+    }
+}